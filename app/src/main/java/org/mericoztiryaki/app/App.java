@@ -1,12 +1,16 @@
 package org.mericoztiryaki.app;
 
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.cli.CommandLine;
 import org.mericoztiryaki.app.adapter.PriceApiAdapter;
+import org.mericoztiryaki.app.metrics.JfrMetricsSink;
 import org.mericoztiryaki.app.reader.CsvReader;
 import org.mericoztiryaki.app.reader.PortfolioReader;
+import org.mericoztiryaki.app.server.ReportServer;
 import org.mericoztiryaki.app.util.CliParser;
 import org.mericoztiryaki.domain.ReportManager;
 import org.mericoztiryaki.domain.exception.ReportGenerationException;
+import org.mericoztiryaki.domain.exception.ReportParametersException;
 import org.mericoztiryaki.domain.model.ReportRequest;
 import org.mericoztiryaki.domain.port.PriceSource;
 import org.mericoztiryaki.domain.service.impl.PriceService;
@@ -14,6 +18,11 @@ import org.mericoztiryaki.domain.service.impl.ReportService;
 import org.mericoztiryaki.domain.service.impl.TransactionService;
 import org.mericoztiryaki.domain.util.ExecutorManager;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
 @Log4j2
 public class App {
 
@@ -24,14 +33,30 @@ public class App {
     private static ReportManager reportManager;
 
     public static void main(String[] args) {
+        boolean serving = false;
         try {
+            CommandLine line = CliParser.parse(args);
+            Integer serverPort = CliParser.parseServerPort(line);
+
             initializeBeans();
 
-            createReport(CliParser.buildReportRequest(args));
+            if (serverPort != null) {
+                startServer(serverPort);
+                serving = true;
+            } else if (line.hasOption("batch")) {
+                createBatchReports(CliParser.buildBatchReportRequests(line));
+            } else {
+                createReport(CliParser.buildReportRequest(line));
+            }
         } catch (ReportGenerationException e) {
             log.error(e.getMessage());
+        } catch (IOException e) {
+            log.error("Report server can't started", e);
         } finally {
-            ExecutorManager.shutdown();
+            // Server keeps the executors until the process is stopped
+            if (!serving) {
+                ExecutorManager.shutdown();
+            }
         }
     }
 
@@ -41,13 +66,47 @@ public class App {
         transactionService = new TransactionService(priceService);
         reportService = new ReportService(priceService, transactionService);
         reportManager = new ReportManager(reportService);
+        reportManager.setMetricsSink(new JfrMetricsSink());
+    }
+
+    private static void startServer(int port) throws IOException {
+        ReportServer server = new ReportServer(port, App::createReport,
+                () -> String.valueOf(priceService.getCacheStats()));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            ExecutorManager.shutdown();
+        }));
+
+        server.start();
     }
 
     private static void createReport(ReportRequest reportRequest) throws ReportGenerationException {
         PortfolioReader csvReader = new CsvReader(reportRequest.getInputFileLocation());
-        reportRequest.setTransactions(csvReader.read());
+        reportRequest.setTransactions(csvReader);
 
         reportManager.generateReport(reportRequest);
+
+        log.info("Price cache: {}", priceService.getCacheStats());
+    }
+
+    // Reports of the batch share the price service, so prices common to the portfolios are fetched once
+    private static void createBatchReports(List<ReportRequest> reportRequests) throws ReportGenerationException {
+        for (ReportRequest reportRequest: reportRequests) {
+            try {
+                Files.createDirectories(Paths.get(reportRequest.getOutputFileLocation()).getParent());
+            } catch (IOException e) {
+                throw new ReportParametersException("Output directory can't created: " + e.getMessage());
+            }
+            reportRequest.setTransactions(new CsvReader(reportRequest.getInputFileLocation()));
+        }
+
+        int failedCount = reportManager.generateReports(reportRequests);
+        if (failedCount > 0) {
+            log.error("{} of {} reports can't created", failedCount, reportRequests.size());
+        }
+
+        log.info("Price cache: {}", priceService.getCacheStats());
     }
 
 }
@@ -1,72 +1,180 @@
 package org.mericoztiryaki.app.adapter;
 
-import com.google.gson.Gson;
-import lombok.Data;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import lombok.extern.log4j.Log4j2;
 import okhttp3.*;
 import org.mericoztiryaki.domain.exception.PriceApiException;
 import org.mericoztiryaki.domain.model.Price;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
 import org.mericoztiryaki.domain.model.constant.InstrumentType;
 import org.mericoztiryaki.domain.port.PriceSource;
 import org.mericoztiryaki.domain.util.Environment;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
 import java.text.MessageFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Log4j2
 public class PriceApiAdapter implements PriceSource {
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final String host;
+
+    private final OkHttpClient client;
+
+    // Calls are executed on the caller threads, this bounds the ones in progress at the same time
+    private final Semaphore requestPermits;
+
+    // Requests being executed, keyed by url. Identical concurrent requests wait for the same response.
+    private final Map<String, CompletableFuture<List<Price>>> inFlightRequests = new ConcurrentHashMap<>();
+
     public PriceApiAdapter() {
-        log.info("PriceSource created for host: {}", Environment.PRICE_API_HOST);
+        this(Environment.PRICE_API_HOST, Environment.PRICE_FETCH_PARALLELISM);
+    }
+
+    PriceApiAdapter(String host, int parallelism) {
+        this.host = host;
+        this.client = createClient(parallelism);
+        this.requestPermits = new Semaphore(parallelism);
+        log.info("PriceSource created for host: {}", host);
+    }
+
+    private static OkHttpClient createClient(int parallelism) {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(parallelism,
+                        Environment.PRICE_API_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS))
+                // HTTP/2 is negotiated over TLS, plain connections fall back to HTTP/1.1
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(Environment.PRICE_API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(Environment.PRICE_API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
     }
 
     @Override
     public List<Price> getPriceWindow(InstrumentType instrumentType,
                                       String symbol, LocalDate start, LocalDate end) throws PriceApiException {
-        OkHttpClient client = new OkHttpClient();
-
         String service = MessageFormat.format("{0}/price_window/{1}/{2}",
-                Environment.PRICE_API_HOST, instrumentType, symbol);
+                host, instrumentType, symbol);
 
         HttpUrl.Builder urlBuilder
                 = HttpUrl.parse(service).newBuilder();
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-        urlBuilder.addQueryParameter("start", formatter.format(start));
-        urlBuilder.addQueryParameter("end", formatter.format(end));
+        urlBuilder.addQueryParameter("start", DATE_FORMATTER.format(start));
+        urlBuilder.addQueryParameter("end", DATE_FORMATTER.format(end));
 
         String url = urlBuilder.build().toString();
 
+        CompletableFuture<List<Price>> future = new CompletableFuture<>();
+        CompletableFuture<List<Price>> inFlight = inFlightRequests.putIfAbsent(url, future);
+
+        if (inFlight == null) {
+            try {
+                future.complete(Collections.unmodifiableList(execute(url)));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                inFlightRequests.remove(url);
+            }
+        } else {
+            future = inFlight;
+        }
+
+        try {
+            return future.join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Price api exception: " + url, cause);
+            throw new PriceApiException(cause, instrumentType, symbol, start, end);
+        }
+    }
+
+    private List<Price> execute(String url) throws IOException {
         Request request = new Request.Builder()
                 .url(url)
                 .build();
 
-        Call call = client.newCall(request);
+        try {
+            requestPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a price api request");
+        }
 
-        try(ResponseBody response = call.execute().body()) {
-            Gson gson = new Gson();
-            PriceListResponse resp =  gson.fromJson(response.string(), PriceListResponse.class);
-            return resp.getData().stream()
-                    .map(d -> new Price(d.getDay(), d.getQuotes())).collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("Price api exception: " + url, e);
-            throw new PriceApiException(e, instrumentType, symbol, start, end);
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Unexpected response code: " + response.code());
+            }
+
+            try (JsonReader reader = new JsonReader(response.body().charStream())) {
+                return readPriceList(reader);
+            }
+        } finally {
+            requestPermits.release();
         }
     }
 
-    @Data
-    private static class PriceListResponse {
+    // Decodes {"data": [{"day": "dd-MM-yyyy", "quotes": {"TRY": "1.23", ...}}, ...]} while it is read from the socket
+    private static List<Price> readPriceList(JsonReader reader) throws IOException {
+        List<Price> prices = new ArrayList<>();
 
-        private List<Day> data;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    prices.add(readPrice(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return prices;
+    }
+
+    private static Price readPrice(JsonReader reader) throws IOException {
+        LocalDate day = null;
+        Quotes quotes = new Quotes();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("day")) {
+                day = LocalDate.parse(reader.nextString(), DATE_FORMATTER);
+            } else if (name.equals("quotes")) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    Currency currency = Currency.valueOf(reader.nextName());
+                    // Numbers and strings are both read as their exact text
+                    quotes.set(currency, new BigDecimal(reader.nextString()));
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-        @Data
-        public static class Day {
-            private String day;
-            private Map<String, String> quotes;
+        if (day == null) {
+            throw new IOException("Price entry without day");
         }
+        return new Price(day, quotes);
     }
 }
@@ -0,0 +1,93 @@
+package org.mericoztiryaki.app.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.mericoztiryaki.domain.port.MetricsSink;
+import org.mericoztiryaki.domain.util.PipelineMetrics;
+
+// Emits the report metrics as JFR events, they are recorded only while a recording enables them, e.g.
+//   java -XX:StartFlightRecording:filename=report.jfr -jar pa.jar ...
+// Events are committed once the report is finished, so their durations are the measured totals.
+public class JfrMetricsSink implements MetricsSink {
+
+    @Override
+    public void accept(PipelineMetrics metrics) {
+        ReportEvent reportEvent = new ReportEvent();
+        if (!reportEvent.isEnabled()) {
+            return;
+        }
+
+        for (PipelineMetrics.Stage stage: metrics.getStages()) {
+            StageEvent stageEvent = new StageEvent();
+            stageEvent.report = metrics.getName();
+            stageEvent.stage = stage.getName();
+            stageEvent.count = stage.getCount();
+            stageEvent.wallTime = stage.getWallNanos();
+            stageEvent.cpuTime = stage.getCpuNanos();
+            stageEvent.allocated = stage.getAllocatedBytes();
+            stageEvent.commit();
+        }
+
+        reportEvent.report = metrics.getName();
+        reportEvent.failed = metrics.isFailed();
+        reportEvent.wallTime = metrics.getWallNanos();
+        reportEvent.cacheHits = metrics.getCacheHits();
+        reportEvent.cacheMisses = metrics.getCacheMisses();
+        reportEvent.apiCalls = metrics.getApiCalls();
+        reportEvent.commit();
+    }
+
+    @Name("org.mericoztiryaki.Report")
+    @Label("Report")
+    @Category("Portfolio Analyzer")
+    static class ReportEvent extends Event {
+        @Label("Report")
+        String report;
+
+        @Label("Failed")
+        boolean failed;
+
+        @Label("Wall Time")
+        @Timespan
+        long wallTime;
+
+        @Label("Price Cache Hits")
+        long cacheHits;
+
+        @Label("Price Cache Misses")
+        long cacheMisses;
+
+        @Label("Price Api Calls")
+        long apiCalls;
+    }
+
+    @Name("org.mericoztiryaki.ReportStage")
+    @Label("Report Stage")
+    @Category("Portfolio Analyzer")
+    static class StageEvent extends Event {
+        @Label("Report")
+        String report;
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Count")
+        long count;
+
+        @Label("Wall Time")
+        @Timespan
+        long wallTime;
+
+        @Label("Cpu Time")
+        @Timespan
+        long cpuTime;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+}
@@ -4,8 +4,8 @@ import lombok.RequiredArgsConstructor;
 import org.mericoztiryaki.app.util.CsvUtil;
 import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
 
 @RequiredArgsConstructor
 public class CsvReader implements PortfolioReader {
@@ -13,18 +13,19 @@ public class CsvReader implements PortfolioReader {
     private final String csvFilePath;
 
     @Override
-    public List<TransactionDefinition> read() {
-        List<List<String>> rawCsvFile = CsvUtil.readCsvFile(csvFilePath);
-
-        List<TransactionDefinition> defs = new ArrayList<>();
+    public Stream<TransactionDefinition> stream() {
+        return CsvUtil.streamCsvFile(csvFilePath, (index, row) ->
+                new TransactionDefinition(index, row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7]));
+    }
 
-        for(int i=0; i<rawCsvFile.size(); i++) {
-            List<String> row = rawCsvFile.get(i);
-            defs.add(new TransactionDefinition(i, row.get(0), row.get(1), row.get(2), row.get(3), row.get(4),
-                    row.get(5), row.get(6), row.get(7)));
-        }
+    @Override
+    public String fingerprint() {
+        return CsvUtil.hashFile(csvFilePath);
+    }
 
-        return defs;
+    @Override
+    public String identity() {
+        return Paths.get(csvFilePath).toAbsolutePath().normalize().toString();
     }
 
 }
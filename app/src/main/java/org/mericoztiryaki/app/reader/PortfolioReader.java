@@ -1,11 +1,18 @@
 package org.mericoztiryaki.app.reader;
 
 import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.port.TransactionSource;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public interface PortfolioReader {
+public interface PortfolioReader extends TransactionSource {
 
-    List<TransactionDefinition> read();
+    default List<TransactionDefinition> read() {
+        try (Stream<TransactionDefinition> definitions = stream()) {
+            return definitions.collect(Collectors.toList());
+        }
+    }
 
 }
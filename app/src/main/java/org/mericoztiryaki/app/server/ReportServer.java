@@ -0,0 +1,123 @@
+package org.mericoztiryaki.app.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.log4j.Log4j2;
+import org.mericoztiryaki.app.util.CliParser;
+import org.mericoztiryaki.domain.exception.ReportGenerationException;
+import org.mericoztiryaki.domain.exception.ReportParametersException;
+import org.mericoztiryaki.domain.model.ReportRequest;
+import org.mericoztiryaki.domain.util.Environment;
+import org.mericoztiryaki.domain.util.ExecutorManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Long-running report server bound to the loopback interface. Beans are created once, so price cache and JIT stay
+// warm between reports. A report is requested with POST /report, body holds the cli arguments one per line, e.g.
+//   -i
+//   /data/client-1.csv
+//   -o
+//   /data/client-1.xlsx
+// The response holds the output file location. GET /stats returns the price cache counters.
+@Log4j2
+public class ReportServer {
+
+    private static final long STOP_TIMEOUT_MILLIS = 60_000;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final AtomicInteger activeReports = new AtomicInteger();
+    private volatile boolean stopping = false;
+
+    public ReportServer(int port, Consumer<ReportRequest> reportHandler, Supplier<String> statsSupplier) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(Environment.REPORT_SERVER_THREADS);
+        ExecutorManager.assign(this.executor);
+
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/report", exchange -> handleReport(exchange, reportHandler));
+        this.server.createContext("/health", exchange -> respond(exchange, 200, "OK"));
+        this.server.createContext("/stats", exchange -> respond(exchange, 200, statsSupplier.get()));
+    }
+
+    public void start() {
+        server.start();
+        log.info("Report server started on port {}", server.getAddress().getPort());
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        // New reports are rejected, running ones are waited a while
+        stopping = true;
+        long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MILLIS;
+        try {
+            while (activeReports.get() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        server.stop(0);
+        log.info("Report server stopped");
+    }
+
+    private void handleReport(HttpExchange exchange, Consumer<ReportRequest> reportHandler) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Only POST is supported");
+            return;
+        }
+
+        activeReports.incrementAndGet();
+        try {
+            if (stopping) {
+                respond(exchange, 503, "Server is stopping");
+                return;
+            }
+
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String[] args = body.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .toArray(String[]::new);
+
+            ReportRequest reportRequest = CliParser.buildReportRequest(CliParser.parse(args));
+            reportHandler.accept(reportRequest);
+
+            respond(exchange, 200, reportRequest.getOutputFileLocation());
+        } catch (ReportParametersException e) {
+            log.error(e.getMessage());
+            respond(exchange, 400, e.getMessage());
+        } catch (ReportGenerationException e) {
+            log.error(e.getMessage());
+            respond(exchange, 500, e.getMessage());
+        } catch (Exception e) {
+            log.error("Report request failed", e);
+            respond(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            activeReports.decrementAndGet();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] response = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
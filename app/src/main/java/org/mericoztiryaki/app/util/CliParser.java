@@ -6,23 +6,140 @@ import org.mericoztiryaki.domain.model.ReportRequest;
 import org.mericoztiryaki.domain.model.constant.Currency;
 import org.mericoztiryaki.domain.model.constant.InstrumentType;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class CliParser {
 
-    public static ReportRequest buildReportRequest(String[] args) {
+    // Options of all modes are parsed at once, the mode is chosen by the server and batch options of the result
+    public static CommandLine parse(String[] args) {
         CommandLineParser parser = new DefaultParser();
+        try {
+            return parser.parse(createOptions(), args);
+        } catch (ParseException e) {
+            throw new ReportParametersException(e.getMessage());
+        }
+    }
+
+    // Returns the port of the report server if the server mode is requested, null otherwise
+    public static Integer parseServerPort(CommandLine line) {
+        if (!line.hasOption("serve")) {
+            return null;
+        }
+
+        try {
+            return Integer.parseInt(line.getOptionValue("serve"));
+        } catch (NumberFormatException e) {
+            throw new ReportParametersException(e.getMessage());
+        }
+    }
+
+    public static ReportRequest buildReportRequest(CommandLine line) {
+        if (line.hasOption("serve") || line.hasOption("batch")) {
+            throw new ReportParametersException("Server and batch options can't be used in a report request");
+        }
+        if (!line.hasOption("input-file")) {
+            throw new ReportParametersException("Missing required option: i");
+        }
+
+        ReportRequest reportRequest = ReportRequest.getDefaultReportRequest();
+        reportRequest.setInputFileLocation(line.getOptionValue("input-file"));
+
+        if (line.hasOption("output-file")) {
+            reportRequest.setOutputFileLocation(line.getOptionValue("output-file"));
+        }
+
+        applyReportOptions(line, reportRequest);
+        return reportRequest;
+    }
+
+    // A request is built for every csv file of the batch, output file option is the directory of the reports.
+    // Reports are named after their csv files.
+    public static List<ReportRequest> buildBatchReportRequests(CommandLine line) {
+        if (line.hasOption("input-file")) {
+            throw new ReportParametersException("Input file can't be used with the batch option");
+        }
+
+        Path outputDirectory = Paths.get(line.getOptionValue("output-file", "")).toAbsolutePath();
+        List<ReportRequest> reportRequests = new ArrayList<>();
+        for (Path inputFile: listBatchFiles(Paths.get(line.getOptionValue("batch")))) {
+            String name = inputFile.getFileName().toString().replaceFirst("(?i)\\.csv$", "");
+
+            ReportRequest reportRequest = ReportRequest.getDefaultReportRequest();
+            reportRequest.setInputFileLocation(inputFile.toString());
+            reportRequest.setOutputFileLocation(outputDirectory.resolve(name + ".xlsx").toString());
+            applyReportOptions(line, reportRequest);
+            reportRequests.add(reportRequest);
+        }
+        return reportRequests;
+    }
+
+    // Csv files of a directory, or the files listed in a manifest one per line. Relative paths of a manifest are
+    // resolved against its directory, empty lines and lines starting with # are skipped.
+    private static List<Path> listBatchFiles(Path input) {
+        try {
+            List<Path> files;
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> paths = Files.list(input)) {
+                    files = paths
+                            .filter(Files::isRegularFile)
+                            .filter(path -> path.getFileName().toString().toLowerCase().endsWith(".csv"))
+                            .sorted()
+                            .collect(Collectors.toList());
+                }
+            } else if (Files.isRegularFile(input)) {
+                Path directory = input.toAbsolutePath().getParent();
+                files = Files.readAllLines(input, StandardCharsets.UTF_8).stream()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .map(line -> directory.resolve(line))
+                        .collect(Collectors.toList());
+            } else {
+                throw new ReportParametersException("Batch input not found: " + input);
+            }
+
+            if (files.isEmpty()) {
+                throw new ReportParametersException("Batch input has no csv files: " + input);
+            }
+            return files;
+        } catch (IOException e) {
+            throw new ReportParametersException("Batch input can't read: " + e.getMessage());
+        }
+    }
 
+    private static Options createOptions() {
         Options options = new Options();
+
         options.addOption(Option.builder()
                 .option("i")
                 .longOpt("input-file")
                 .hasArg()
-                .required()
-                .desc("Csv file path which transactions defined in")
+                .desc("Csv file path which transactions defined in, required unless the server or batch mode is requested")
+                .build());
+
+        options.addOption(Option.builder()
+                .option("b")
+                .longOpt("batch")
+                .hasArg()
+                .desc("Directory or manifest of csv files, a report is created for each of them")
+                .build());
+
+        options.addOption(Option.builder()
+                .option("s")
+                .longOpt("serve")
+                .hasArg()
+                .desc("Runs as a report server listening on the given local port")
                 .build());
 
         options.addOption(Option.builder()
@@ -63,71 +180,57 @@ public class CliParser {
                 .option("o")
                 .longOpt("output-file")
                 .hasArg()
-                .desc("Output file path")
+                .desc("Output file path, output directory in batch mode")
                 .build());
 
-        try {
-            ReportRequest reportRequest = ReportRequest.getDefaultReportRequest();
-            CommandLine line = parser.parse(options, args);
-
-            if (line.hasOption("date")) {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("DD-MM-YYYY");
-                LocalDate date = LocalDate.parse(line.getOptionValue("date"), formatter);
-
-                reportRequest.setReportDate(date);
-            }
+        return options;
+    }
 
-            if (line.hasOption("input-file")) {
-                reportRequest.setInputFileLocation(line.getOptionValue("input-file"));
-            }
+    private static void applyReportOptions(CommandLine line, ReportRequest reportRequest) {
+        if (line.hasOption("date")) {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("DD-MM-YYYY");
+            LocalDate date = LocalDate.parse(line.getOptionValue("date"), formatter);
 
-            if (line.hasOption("output-file")) {
-                reportRequest.setOutputFileLocation(line.getOptionValue("output-file"));
-            }
+            reportRequest.setReportDate(date);
+        }
 
-            if (line.hasOption("currency")) {
-                Set<Currency> currencies = new HashSet<>();
-                for (String s: line.getOptionValues("currency")) {
-                    if (s.trim().length() != 0) {
-                        try {
-                            currencies.add(Currency.parse(s));
-                        } catch (IllegalArgumentException e) {
-                            throw new ReportParametersException(e.getMessage());
-                        }
+        if (line.hasOption("currency")) {
+            Set<Currency> currencies = new HashSet<>();
+            for (String s: line.getOptionValues("currency")) {
+                if (s.trim().length() != 0) {
+                    try {
+                        currencies.add(Currency.parse(s));
+                    } catch (IllegalArgumentException e) {
+                        throw new ReportParametersException(e.getMessage());
                     }
                 }
-                reportRequest.setCurrencies(currencies);
             }
+            reportRequest.setCurrencies(currencies);
+        }
 
-            if (line.hasOption("filtered-instrument-types")) {
-                Set<InstrumentType> filteredInstrumentTypes = new HashSet<>();
-                for (String s: line.getOptionValues("filtered-instrument-types")) {
-                    if (s.trim().length() != 0) {
-                        try {
-                            filteredInstrumentTypes.add(InstrumentType.parse(s));
-                        } catch (IllegalArgumentException e) {
-                            throw new ReportParametersException(e.getMessage());
-                        }
+        if (line.hasOption("filtered-instrument-types")) {
+            Set<InstrumentType> filteredInstrumentTypes = new HashSet<>();
+            for (String s: line.getOptionValues("filtered-instrument-types")) {
+                if (s.trim().length() != 0) {
+                    try {
+                        filteredInstrumentTypes.add(InstrumentType.parse(s));
+                    } catch (IllegalArgumentException e) {
+                        throw new ReportParametersException(e.getMessage());
                     }
                 }
-                reportRequest.setFilteredInstrumentTypes(filteredInstrumentTypes);
             }
+            reportRequest.setFilteredInstrumentTypes(filteredInstrumentTypes);
+        }
 
-            if (line.hasOption("filtered-symbols")) {
-                Set<String> filteredSymbols = new HashSet<>();
-                for (String s: line.getOptionValues("filtered-symbols")) {
-                    if (s.trim().length() != 0) {
-                        filteredSymbols.add(s);
-                    }
+        if (line.hasOption("filtered-symbols")) {
+            Set<String> filteredSymbols = new HashSet<>();
+            for (String s: line.getOptionValues("filtered-symbols")) {
+                if (s.trim().length() != 0) {
+                    filteredSymbols.add(s);
                 }
-                reportRequest.setFilteredSymbols(filteredSymbols);
             }
-
-            return reportRequest;
-        } catch (ParseException e) {
-            throw new ReportParametersException(e.getMessage());
+            reportRequest.setFilteredSymbols(filteredSymbols);
         }
-
     }
 
 }
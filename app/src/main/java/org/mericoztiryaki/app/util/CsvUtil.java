@@ -1,33 +1,264 @@
 package org.mericoztiryaki.app.util;
 
 import org.mericoztiryaki.domain.exception.ReaderFailedException;
+import org.mericoztiryaki.domain.util.ExecutorManager;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class CsvUtil {
 
-    public static List<List<String>> readCsvFile(String filePath) {
-        List<List<String>> data = new ArrayList<>();
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 1 << 23;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                List<String> row = new ArrayList<>();
-                for (String value : values) {
-                    row.add(value.trim());
+    // Chunks tokenized ahead of the consumer, bounds the memory used by parsed rows
+    private static final int READ_AHEAD = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+    // Shared by the streams, so tokenizing never uses more than READ_AHEAD threads
+    private static final ExecutorService READ_EXECUTOR = createReadExecutor();
+
+    // File is split into newline aligned chunks, chunks are mapped and tokenized in parallel. Rows are streamed in file
+    // order. Fields may be quoted to contain commas ("1,000"), quoted fields can't contain line breaks.
+    public static <T> Stream<T> streamCsvFile(String filePath, RowMapper<T> rowMapper) {
+        return streamCsvFile(filePath, rowMapper, 0);
+    }
+
+    // Chunk size 0 selects it by the file size
+    static <T> Stream<T> streamCsvFile(String filePath, RowMapper<T> rowMapper, long chunkSize) {
+        return streamCsvFile(filePath, rowMapper, chunkSize, READ_EXECUTOR, READ_AHEAD);
+    }
+
+    static <T> Stream<T> streamCsvFile(String filePath, RowMapper<T> rowMapper, long chunkSize, ExecutorService executor,
+                                       int readAhead) {
+        FileChannel channel;
+        List<long[]> chunks;
+        try {
+            channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+            chunks = splitIntoChunks(channel, chunkSize);
+        } catch (IOException e) {
+            throw new ReaderFailedException(e, filePath);
+        }
+
+        Deque<Future<List<String[]>>> pending = new ArrayDeque<>();
+        Iterator<List<T>> chunkIterator = new Iterator<>() {
+            private int nextChunk = 0;
+            private int nextRowIndex = 0;
+
+            private void readAhead() {
+                while (pending.size() < readAhead && nextChunk < chunks.size()) {
+                    long[] chunk = chunks.get(nextChunk++);
+                    pending.add(executor.submit(() -> readChunk(channel, chunk[0], chunk[1])));
                 }
-                data.add(row);
             }
-        } catch (IOException e) {
+
+            @Override
+            public boolean hasNext() {
+                readAhead();
+                return !pending.isEmpty();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<String[]> rows;
+                try {
+                    rows = pending.poll().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw new ReaderFailedException(e.getCause().getCause(), filePath);
+                    }
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() :
+                            new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ReaderFailedException(e, filePath);
+                }
+
+                // Chunks are consumed in file order, so row indexes are assigned here
+                List<T> mappedRows = new ArrayList<>(rows.size());
+                for (String[] row: rows) {
+                    mappedRows.add(rowMapper.map(nextRowIndex++, row));
+                }
+                return mappedRows;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunkIterator, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(() -> {
+                    // Chunks read ahead are not needed anymore
+                    pending.forEach(future -> future.cancel(true));
+                    pending.clear();
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    // SHA-256 of the file content as hex
+    public static String hashFile(String filePath) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAX_CHUNK_SIZE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_CHUNK_SIZE, size - position)));
+            }
+
+            StringBuilder hex = new StringBuilder();
+            for (byte b: digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
             throw new ReaderFailedException(e, filePath);
         }
+    }
+
+    private static ExecutorService createReadExecutor() {
+        ExecutorService executorService = Executors.newFixedThreadPool(READ_AHEAD);
+        ExecutorManager.assign(executorService);
+        return executorService;
+    }
+
+    private static List<long[]> splitIntoChunks(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        if (chunkSize == 0) {
+            chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / Runtime.getRuntime().availableProcessors()));
+        }
+
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize < size ? nextLineStart(channel, start + chunkSize) : size;
+            chunks.add(new long[] { start, end });
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < channel.size()) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return channel.size();
+    }
+
+    private static List<String[]> readChunk(FileChannel channel, long start, long end) {
+        ByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<String[]> rows = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        byte[] field = new byte[64];
+        int fieldLength = 0;
+        boolean inQuotes = false;
+
+        int i = 0;
+        int limit = buffer.limit();
+        // Skip UTF-8 byte order mark
+        if (start == 0 && limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+                && buffer.get(2) == (byte) 0xBF) {
+            i = 3;
+        }
+
+        for (; i < limit; i++) {
+            byte b = buffer.get(i);
+
+            if (inQuotes) {
+                if (b != '"') {
+                    field = append(field, fieldLength++, b);
+                } else if (i + 1 < limit && buffer.get(i + 1) == '"') {
+                    // Escaped quote
+                    field = append(field, fieldLength++, b);
+                    i++;
+                } else {
+                    inQuotes = false;
+                }
+            } else if (b == '"') {
+                inQuotes = true;
+            } else if (b == ',') {
+                fields.add(toField(field, fieldLength));
+                fieldLength = 0;
+            } else if (b == '\n') {
+                fields.add(toField(field, fieldLength));
+                fieldLength = 0;
+                addRow(rows, fields);
+            } else if (b != '\r') {
+                field = append(field, fieldLength++, b);
+            }
+        }
+
+        // Last line without a line break
+        if (fieldLength > 0 || !fields.isEmpty()) {
+            fields.add(toField(field, fieldLength));
+            addRow(rows, fields);
+        }
+
+        return rows;
+    }
+
+    private static void addRow(List<String[]> rows, List<String> fields) {
+        // Skip blank lines
+        if (fields.size() > 1 || !fields.get(0).isEmpty()) {
+            rows.add(fields.toArray(new String[0]));
+        }
+        fields.clear();
+    }
+
+    private static byte[] append(byte[] field, int index, byte b) {
+        if (index == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[index] = b;
+        return field;
+    }
+
+    private static String toField(byte[] field, int length) {
+        return new String(field, 0, length, StandardCharsets.UTF_8).trim();
+    }
 
-        return data;
+    // Maps the fields of a row, index is the position of the row among the non-blank rows of the file
+    public interface RowMapper<T> {
+        T map(int index, String[] fields);
     }
 
 }
@@ -0,0 +1,131 @@
+package org.mericoztiryaki.app.adapter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.exception.PriceApiException;
+import org.mericoztiryaki.domain.model.Price;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PriceApiAdapterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 1, 4);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String host;
+
+    private volatile int responseCode = 200;
+    private volatile String responseBody = "{\"data\": [{\"day\": \"04-01-2021\", \"quotes\": {\"TRY\": \"1\"}}]}";
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+        host = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentRequestsAreBoundedByParallelism() throws Exception {
+        PriceApiAdapter adapter = new PriceApiAdapter(host, 2);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String symbol = "S" + i;
+                futures.add(callers.submit(() -> adapter.getPriceWindow(InstrumentType.BIST, symbol, DAY, DAY)));
+            }
+            for (Future<?> future: futures) {
+                future.get();
+            }
+        } finally {
+            callers.shutdown();
+        }
+
+        assertTrue(maxActiveRequests.get() <= 2, "max active requests: " + maxActiveRequests.get());
+        assertEquals(0, activeRequests.get());
+    }
+
+    @Test
+    public void pricesAreDecodedFromResponse() {
+        responseBody = "{\"symbol\": \"AAA\", \"data\": ["
+                + "{\"day\": \"04-01-2021\", \"quotes\": {\"TRY\": \"12.3400\", \"USD\": 1.5, \"EUR\": \"1.25\"}},"
+                + "{\"source\": {\"name\": \"x\"}, \"quotes\": {\"TRY\": 13}, \"day\": \"05-01-2021\"}"
+                + "], \"count\": 2}";
+
+        List<Price> prices = new PriceApiAdapter(host, 2).getPriceWindow(InstrumentType.BIST, "AAA", DAY, DAY.plusDays(1));
+
+        assertEquals(2, prices.size());
+        assertEquals(DAY, prices.get(0).getDay());
+        // Values keep the text of the response
+        assertEquals(new BigDecimal("12.3400"), prices.get(0).getQuotes().get(Currency.TRY));
+        assertEquals(new BigDecimal("1.5"), prices.get(0).getQuotes().get(Currency.USD));
+        assertEquals(new BigDecimal("1.25"), prices.get(0).getQuotes().get(Currency.EUR));
+        assertEquals(DAY.plusDays(1), prices.get(1).getDay());
+        assertEquals(new BigDecimal("13"), prices.get(1).getQuotes().get(Currency.TRY));
+    }
+
+    @Test
+    public void invalidResponsesFailWithPriceApiException() {
+        PriceApiAdapter adapter = new PriceApiAdapter(host, 2);
+
+        responseBody = "{\"data\": [{\"quotes\": {\"TRY\": \"1\"}}]}";
+        assertThrows(PriceApiException.class, () -> adapter.getPriceWindow(InstrumentType.BIST, "AAA", DAY, DAY));
+
+        responseBody = "{\"data\": [{\"day\": \"04-01-2021\", \"quotes\": {\"TRY\": \"1\"}";
+        assertThrows(PriceApiException.class, () -> adapter.getPriceWindow(InstrumentType.BIST, "AAA", DAY, DAY));
+
+        responseCode = 500;
+        assertThrows(PriceApiException.class, () -> adapter.getPriceWindow(InstrumentType.BIST, "AAA", DAY, DAY));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int active = activeRequests.incrementAndGet();
+        maxActiveRequests.accumulateAndGet(active, Math::max);
+        try {
+            Thread.sleep(50);
+            byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(responseCode, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            activeRequests.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.mericoztiryaki.app.reader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class CsvReaderTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void createFile() throws IOException {
+        file = Files.createTempFile("csv-reader", ".csv");
+    }
+
+    @AfterEach
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void definitionsAreIndexedInFileOrder() throws IOException {
+        Files.writeString(file, "01-01-2021 10:00:00,BIST,AAA,BUY,10,\"1,5\",0,TRY\n\n"
+                + "02-01-2021 10:00:00,BIST,AAA,SELL,5,2,0.1,TRY\n");
+
+        CsvReader reader = new CsvReader(file.toString());
+        List<TransactionDefinition> definitions;
+        try (Stream<TransactionDefinition> stream = reader.stream()) {
+            definitions = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(List.of(
+                new TransactionDefinition(0, "01-01-2021 10:00:00", "BIST", "AAA", "BUY", "10", "1,5", "0", "TRY"),
+                new TransactionDefinition(1, "02-01-2021 10:00:00", "BIST", "AAA", "SELL", "5", "2", "0.1", "TRY")),
+                definitions);
+    }
+
+    @Test
+    public void fingerprintChangesWithContent() throws IOException {
+        Files.writeString(file, "a\n");
+        String fingerprint = new CsvReader(file.toString()).fingerprint();
+        assertEquals(fingerprint, new CsvReader(file.toString()).fingerprint());
+
+        Files.writeString(file, "b\n");
+        assertNotEquals(fingerprint, new CsvReader(file.toString()).fingerprint());
+    }
+}
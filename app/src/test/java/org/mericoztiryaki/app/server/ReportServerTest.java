@@ -0,0 +1,93 @@
+package org.mericoztiryaki.app.server;
+
+import lombok.Data;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.exception.ReportGenerationException;
+import org.mericoztiryaki.domain.model.ReportRequest;
+import org.mericoztiryaki.domain.model.constant.Currency;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportServerTest {
+
+    private final List<ReportRequest> handledRequests = Collections.synchronizedList(new ArrayList<>());
+
+    private ReportServer server;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new ReportServer(0, request -> {
+            if (request.getInputFileLocation().endsWith("broken.csv")) {
+                throw new ReportGenerationException(new IOException("broken"));
+            }
+            handledRequests.add(request);
+        }, () -> "{\"hits\": 1}");
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void reportIsGeneratedForPostedArguments() throws IOException {
+        Response response = send("POST", "/report", "-i\n/data/client-1.csv\n\n  -o  \n/data/client-1.xlsx\n-c\nusd\n");
+
+        assertEquals(200, response.getStatus());
+        assertEquals("/data/client-1.xlsx\n", response.getBody());
+        assertEquals(1, handledRequests.size());
+        assertEquals("/data/client-1.csv", handledRequests.get(0).getInputFileLocation());
+        assertEquals(Set.of(Currency.USD), handledRequests.get(0).getCurrencies());
+    }
+
+    @Test
+    public void failuresAreAnsweredWithStatus() throws IOException {
+        assertEquals(400, send("POST", "/report", "-o\n/data/client-1.xlsx\n").getStatus());
+        assertEquals(400, send("POST", "/report", "-s\n8080\n-i\n/data/client-1.csv\n").getStatus());
+        assertEquals(500, send("POST", "/report", "-i\n/data/broken.csv\n").getStatus());
+        assertEquals(405, send("GET", "/report", null).getStatus());
+        assertTrue(handledRequests.isEmpty());
+
+        assertEquals(new Response(200, "OK\n"), send("GET", "/health", null));
+        assertEquals(new Response(200, "{\"hits\": 1}\n"), send("GET", "/stats", null));
+    }
+
+    private Response send(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Response(status, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Data
+    private static class Response {
+        private final int status;
+        private final String body;
+    }
+}
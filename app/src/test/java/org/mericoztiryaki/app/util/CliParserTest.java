@@ -0,0 +1,100 @@
+package org.mericoztiryaki.app.util;
+
+import org.apache.commons.cli.CommandLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.exception.ReportParametersException;
+import org.mericoztiryaki.domain.model.ReportRequest;
+import org.mericoztiryaki.domain.model.constant.Currency;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CliParserTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("cli-parser");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void singleReportIsRequestedWithoutServerAndBatchOptions() {
+        CommandLine line = CliParser.parse(new String[]{"-i", "x.csv", "-o", "out.xlsx", "-c", "usd,eur"});
+        assertNull(CliParser.parseServerPort(line));
+        assertFalse(line.hasOption("batch"));
+
+        ReportRequest reportRequest = CliParser.buildReportRequest(line);
+        assertEquals("x.csv", reportRequest.getInputFileLocation());
+        assertEquals("out.xlsx", reportRequest.getOutputFileLocation());
+        assertEquals(Set.of(Currency.USD, Currency.EUR), reportRequest.getCurrencies());
+
+        assertThrows(ReportParametersException.class,
+                () -> CliParser.buildReportRequest(CliParser.parse(new String[]{"-o", "out.xlsx"})));
+    }
+
+    @Test
+    public void serverOptionIsFoundAfterReportOptions() {
+        CommandLine line = CliParser.parse(new String[]{"-i", "x.csv", "-s", "8080"});
+        assertEquals(Integer.valueOf(8080), CliParser.parseServerPort(line));
+
+        assertEquals(Integer.valueOf(9090), CliParser.parseServerPort(CliParser.parse(new String[]{"--serve", "9090"})));
+        assertThrows(ReportParametersException.class,
+                () -> CliParser.parseServerPort(CliParser.parse(new String[]{"-s", "port"})));
+    }
+
+    @Test
+    public void batchOptionIsFoundAfterReportOptions() throws IOException {
+        Files.createFile(directory.resolve("b.csv"));
+        Files.createFile(directory.resolve("a.CSV"));
+        Files.createFile(directory.resolve("notes.txt"));
+
+        CommandLine line = CliParser.parse(new String[]{"-o", "out", "-b", directory.toString()});
+        assertNull(CliParser.parseServerPort(line));
+        assertTrue(line.hasOption("batch"));
+
+        List<ReportRequest> reportRequests = CliParser.buildBatchReportRequests(line);
+        assertEquals(List.of(directory.resolve("a.CSV").toString(), directory.resolve("b.csv").toString()),
+                reportRequests.stream().map(ReportRequest::getInputFileLocation).collect(Collectors.toList()));
+        assertEquals(Path.of("out", "a.xlsx").toAbsolutePath().toString(), reportRequests.get(0).getOutputFileLocation());
+
+        // A report request of the server can't switch the mode
+        assertThrows(ReportParametersException.class, () -> CliParser.buildReportRequest(line));
+    }
+
+    @Test
+    public void batchManifestPathsAreResolvedAgainstItsDirectory() throws IOException {
+        Path manifest = directory.resolve("batch.txt");
+        Files.writeString(manifest, "# portfolios\nfirst.csv\n\n" + directory.resolve("second.csv") + "\n");
+
+        List<ReportRequest> reportRequests = CliParser.buildBatchReportRequests(
+                CliParser.parse(new String[]{"--batch", manifest.toString(), "-o", directory.toString()}));
+        assertEquals(2, reportRequests.size());
+        assertEquals(directory.resolve("first.csv").toString(), reportRequests.get(0).getInputFileLocation());
+        assertEquals(directory.resolve("second.xlsx").toString(), reportRequests.get(1).getOutputFileLocation());
+
+        assertThrows(ReportParametersException.class, () -> CliParser.buildBatchReportRequests(
+                CliParser.parse(new String[]{"-i", "x.csv", "-b", manifest.toString()})));
+    }
+}
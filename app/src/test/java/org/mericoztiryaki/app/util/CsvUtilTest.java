@@ -0,0 +1,152 @@
+package org.mericoztiryaki.app.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.exception.ReaderFailedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CsvUtilTest {
+
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private Path file;
+
+    @BeforeEach
+    public void createFile() throws IOException {
+        file = Files.createTempFile("csv-util", ".csv");
+    }
+
+    @AfterEach
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void quotedFieldsAreParsed() throws IOException {
+        write("a,\"1,000\",\"say \"\"hi\"\"\"\n\"\",b , c\n");
+
+        assertEquals(List.of("0|a|1,000|say \"hi\"", "1||b|c"), read(0));
+    }
+
+    @Test
+    public void byteOrderMarkAndLineEndingsAreSkipped() throws IOException {
+        write(BOM, "a,b\r\n\r\nc,d\n\ne,f");
+
+        assertEquals(List.of("0|a|b", "1|c|d", "2|e|f"), read(0));
+    }
+
+    @Test
+    public void rowsAreSameForEveryChunkSize() throws IOException {
+        write(BOM, "date,type\r\n01-01-2021,\"1,5\"\n\n\"x\"\"y\",z\r\nlast,\"row\"");
+        List<String> expected = List.of("0|date|type", "1|01-01-2021|1,5", "2|x\"y|z", "3|last|row");
+
+        for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+            assertEquals(expected, read(chunkSize), "chunk size: " + chunkSize);
+        }
+    }
+
+    @Test
+    public void rowIndexesFollowFileOrderAcrossChunks() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append(i).append(",\"").append(i).append(",0\"\n");
+        }
+        write(content.toString());
+
+        List<String> rows = read(97);
+        assertEquals(5000, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(i + "|" + i + "|" + i + ",0", rows.get(i));
+        }
+    }
+
+    @Test
+    public void closingStreamCancelsChunksReadAhead() throws IOException, InterruptedException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append(i).append(",row\n");
+        }
+        write(content.toString());
+
+        // Only the first chunk is read, the others wait until the stream is closed
+        CountDownLatch closed = new CountDownLatch(1);
+        List<Future<?>> tasks = Collections.synchronizedList(new ArrayList<>());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            protected <V> RunnableFuture<V> newTaskFor(Callable<V> callable) {
+                RunnableFuture<V> task = super.newTaskFor(callable);
+                tasks.add(task);
+                return task;
+            }
+
+            @Override
+            protected void beforeExecute(Thread thread, Runnable task) {
+                if (task != tasks.get(0)) {
+                    try {
+                        closed.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+
+        try (Stream<String> rows = CsvUtil.streamCsvFile(file.toString(), (index, fields) -> fields[0], 16, executor, 4)) {
+            assertEquals("0", rows.iterator().next());
+        }
+        closed.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(4, tasks.size());
+        assertTrue(tasks.get(0).isDone());
+        assertEquals(3, tasks.stream().filter(Future::isCancelled).count());
+    }
+
+    @Test
+    public void missingFileFails() {
+        assertThrows(ReaderFailedException.class,
+                () -> CsvUtil.streamCsvFile(file.resolveSibling("missing.csv").toString(), (index, fields) -> fields));
+    }
+
+    private List<String> read(long chunkSize) {
+        try (Stream<String> rows = CsvUtil.streamCsvFile(file.toString(),
+                (index, fields) -> index + "|" + String.join("|", fields), chunkSize)) {
+            return rows.collect(Collectors.toList());
+        }
+    }
+
+    private void write(String content) throws IOException {
+        write(new byte[0], content);
+    }
+
+    private void write(byte[] prefix, String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(prefix);
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        Files.write(file, out.toByteArray());
+    }
+}
@@ -0,0 +1,32 @@
+package org.mericoztiryaki.benchmarks;
+
+import org.mericoztiryaki.domain.service.impl.Analyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AnalyzerBenchmark {
+
+    @Benchmark
+    public void analyze(PortfolioState portfolio, Blackhole blackhole) {
+        Analyzer analyzer = new Analyzer(portfolio.priceService, portfolio.transactions,
+                portfolio.parameters.getReportDate());
+
+        blackhole.consume(analyzer.calculatePNL());
+        blackhole.consume(analyzer.calculateROI());
+        blackhole.consume(analyzer.calculateInitialValue());
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.mericoztiryaki.benchmarks;
+
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Generates csv-like transaction definitions, sells never exceed the held amount
+public class PortfolioGenerator {
+
+    private static final String[] CURRENCIES = {"TRY", "USD", "EUR"};
+
+    public static List<TransactionDefinition> generate(int transactionCount, int symbolCount, int dayCount, long seed) {
+        Random random = new Random(seed);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+        LocalDateTime start = LocalDateTime.now().minusDays(dayCount).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+        int[] held = new int[symbolCount];
+        List<TransactionDefinition> definitions = new ArrayList<>(transactionCount);
+
+        for (int i = 0; i < transactionCount; i++) {
+            int symbol = random.nextInt(symbolCount);
+            boolean buy = held[symbol] == 0 || random.nextInt(3) > 0;
+            int amount = buy ? 1 + random.nextInt(100) : 1 + random.nextInt(held[symbol]);
+            held[symbol] += buy ? amount : -amount;
+
+            LocalDateTime date = start.plusSeconds((long) i * dayCount * 86400 / transactionCount);
+
+            definitions.add(new TransactionDefinition(
+                    i,
+                    date.format(formatter),
+                    symbol % 5 == 0 ? "FUND" : "BIST",
+                    "SYM" + symbol,
+                    buy ? "BUY" : "SELL",
+                    String.valueOf(amount),
+                    String.valueOf(5 + random.nextInt(500)),
+                    "1",
+                    CURRENCIES[random.nextInt(CURRENCIES.length)]));
+        }
+
+        return definitions;
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.mericoztiryaki.benchmarks;
+
+import org.mericoztiryaki.domain.model.ReportParameters;
+import org.mericoztiryaki.domain.model.ReportRequest;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.service.impl.PriceService;
+import org.mericoztiryaki.domain.service.impl.ReportService;
+import org.mericoztiryaki.domain.service.impl.TransactionService;
+import org.mericoztiryaki.domain.util.ExecutorManager;
+import org.mericoztiryaki.domain.util.ReportParametersUtil;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Services wired with the synthetic price source and a generated portfolio. Prices are warmed up in setup so the
+// benchmarks measure the pipeline, not the price source.
+@State(Scope.Benchmark)
+public class PortfolioState {
+
+    @Param({"1000", "100000", "1000000"})
+    public int transactionCount;
+
+    @Param({"200"})
+    public int symbolCount;
+
+    @Param({"1825"})
+    public int dayCount;
+
+    public PriceService priceService;
+    public TransactionService transactionService;
+    public ReportService reportService;
+
+    public List<TransactionDefinition> definitions;
+    public List<ITransaction> transactions;
+    public ReportParameters parameters;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        priceService = new PriceService(new SyntheticPriceSource());
+        transactionService = new TransactionService(priceService);
+        reportService = new ReportService(priceService, transactionService);
+
+        definitions = PortfolioGenerator.generate(transactionCount, symbolCount, dayCount, 42);
+        transactions = transactionService.buildTransactionObjects(definitions).stream()
+                .sorted(Comparator.comparing(ITransaction::getDate))
+                .collect(Collectors.toList());
+
+        File output = File.createTempFile("benchmark-report", ".xlsx");
+        output.deleteOnExit();
+
+        ReportRequest request = ReportRequest.getDefaultReportRequest();
+        request.setTransactions(definitions::stream);
+        request.setOutputFileLocation(output.getAbsolutePath());
+        parameters = ReportParametersUtil.validateReportRequest(request);
+
+        // Warm up price cache
+        reportService.generateReport(parameters);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ExecutorManager.shutdown();
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.mericoztiryaki.benchmarks;
+
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.util.QuotesUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class QuotesUtilBenchmark {
+
+    private Quotes q1;
+    private Quotes q2;
+    private BigDecimal constant;
+    private Quotes accumulator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        q1 = new Quotes();
+        q1.set(Currency.USD, new BigDecimal("12.345678"));
+        q1.set(Currency.EUR, new BigDecimal("11.223344"));
+        q1.set(Currency.TRY, new BigDecimal("345.6789"));
+
+        q2 = new Quotes();
+        q2.set(Currency.USD, new BigDecimal("1.5"));
+        q2.set(Currency.EUR, new BigDecimal("1.25"));
+        q2.set(Currency.TRY, new BigDecimal("42.125"));
+
+        constant = new BigDecimal("1234.5");
+        accumulator = Quotes.zero();
+    }
+
+    @Benchmark
+    public Quotes add() {
+        return QuotesUtil.add(q1, q2);
+    }
+
+    @Benchmark
+    public Quotes subtract() {
+        return QuotesUtil.subtract(q1, q2);
+    }
+
+    @Benchmark
+    public Quotes multiply() {
+        return QuotesUtil.multiply(q1, constant);
+    }
+
+    @Benchmark
+    public Quotes divide() {
+        return QuotesUtil.divide(q1, q2);
+    }
+
+    @Benchmark
+    public Quotes addProductTo() {
+        return QuotesUtil.addProductTo(accumulator, q1, constant);
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.mericoztiryaki.benchmarks;
+
+import org.mericoztiryaki.domain.model.result.Report;
+import org.mericoztiryaki.domain.writer.excel.ExcelReportWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ReportBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ReportState {
+
+        public Report report;
+
+        @Setup(Level.Trial)
+        public void setup(PortfolioState portfolio) {
+            report = portfolio.reportService.generateReport(portfolio.parameters);
+        }
+    }
+
+    @Benchmark
+    public Report generateReport(PortfolioState portfolio) {
+        return portfolio.reportService.generateReport(portfolio.parameters);
+    }
+
+    @Benchmark
+    public void writeExcelReport(PortfolioState portfolio, ReportState reportState) {
+        new ExcelReportWriter().build(reportState.report, portfolio.parameters);
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.mericoztiryaki.benchmarks;
+
+import org.mericoztiryaki.domain.model.Price;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.port.PriceSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// In-memory price source, returns a deterministic price for every day of the window
+public class SyntheticPriceSource implements PriceSource {
+
+    @Override
+    public List<Price> getPriceWindow(InstrumentType instrumentType, String symbol, LocalDate start, LocalDate end) {
+        List<Price> prices = new ArrayList<>();
+
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            long epochDay = day.toEpochDay();
+            double usdTry = 5 + (epochDay % 1000) * 0.02;
+            double eurTry = usdTry * 1.1;
+
+            double priceTry;
+            if (instrumentType == InstrumentType.CURRENCY) {
+                priceTry = symbol.equals("USD") ? usdTry : symbol.equals("EUR") ? eurTry : 1;
+            } else {
+                priceTry = 10 + (symbol.hashCode() & 63) + (epochDay % 97) * 0.1;
+            }
+
+            Quotes quotes = new Quotes();
+            quotes.set(Currency.TRY, new BigDecimal(String.valueOf(priceTry)));
+            quotes.set(Currency.USD, new BigDecimal(String.valueOf(priceTry / usdTry)));
+            quotes.set(Currency.EUR, new BigDecimal(String.valueOf(priceTry / eurTry)));
+
+            prices.add(new Price(day, quotes));
+        }
+
+        return prices;
+    }
+
+}
@@ -0,0 +1,72 @@
+package org.mericoztiryaki.benchmarks;
+
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TransactionServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class WindowState {
+
+        public List<ITransaction> instrumentTransactions;
+        public LocalDate start;
+        public LocalDate end;
+
+        @Setup(Level.Trial)
+        public void setup(PortfolioState portfolio) {
+            Map<Instrument, List<ITransaction>> grouped = portfolio.transactions.stream()
+                    .collect(Collectors.groupingBy(ITransaction::getInstrument));
+
+            // The most traded instrument
+            instrumentTransactions = grouped.values().stream()
+                    .max((l1, l2) -> Integer.compare(l1.size(), l2.size()))
+                    .orElseThrow();
+
+            end = LocalDate.now().minusDays(30);
+            start = end.minusMonths(1);
+        }
+    }
+
+    @Benchmark
+    public void buildTransactionObject(PortfolioState portfolio, Blackhole blackhole) {
+        for (TransactionDefinition definition: portfolio.definitions) {
+            blackhole.consume(portfolio.transactionService.buildTransactionObject(definition));
+        }
+    }
+
+    @Benchmark
+    public List<ITransaction> buildTransactionObjects(PortfolioState portfolio) {
+        return portfolio.transactionService.buildTransactionObjects(portfolio.definitions);
+    }
+
+    @Benchmark
+    public List<ITransaction> createTransactionSetByWindow(PortfolioState portfolio, WindowState window) {
+        return portfolio.transactionService.createTransactionSetByWindow(
+                window.instrumentTransactions, window.start, window.end);
+    }
+
+}
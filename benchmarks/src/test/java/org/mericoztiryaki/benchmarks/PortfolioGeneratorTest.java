@@ -0,0 +1,68 @@
+package org.mericoztiryaki.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Price;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PortfolioGeneratorTest {
+
+    @Test
+    public void sellsNeverExceedHeldAmount() {
+        List<TransactionDefinition> definitions = PortfolioGenerator.generate(2000, 20, 365, 42);
+        assertEquals(2000, definitions.size());
+
+        Map<String, Integer> held = new HashMap<>();
+        for (TransactionDefinition definition: definitions) {
+            int amount = Integer.parseInt(definition.getAmount());
+            int total = held.merge(definition.getSymbol(), definition.getTransactionType().equals("BUY") ? amount : -amount, Integer::sum);
+            assertTrue(total >= 0, definition.toString());
+        }
+
+        // Same seed, same portfolio
+        assertEquals(definitions.get(1999).getPurchasePrice(),
+                PortfolioGenerator.generate(2000, 20, 365, 42).get(1999).getPurchasePrice());
+    }
+
+    @Test
+    public void syntheticPricesCoverEveryDayOfWindow() {
+        LocalDate start = LocalDate.of(2021, 1, 4);
+        List<Price> prices = new SyntheticPriceSource().getPriceWindow(InstrumentType.BIST, "SYM1", start, start.plusDays(9));
+        assertEquals(10, prices.size());
+        assertEquals(start.plusDays(9), prices.get(9).getDay());
+
+        List<Price> usd = new SyntheticPriceSource().getPriceWindow(InstrumentType.CURRENCY, "USD", start, start);
+        assertEquals(0, BigDecimal.ONE.compareTo(usd.get(0).getQuotes().get(Currency.USD)));
+    }
+
+    @Test
+    public void stateWarmsUpPrices() throws IOException {
+        PortfolioState state = new PortfolioState();
+        state.transactionCount = 300;
+        state.symbolCount = 10;
+        state.dayCount = 120;
+        try {
+            state.setup();
+            assertEquals(300, state.transactions.size());
+            assertTrue(state.priceService.getCacheStats().getSize() > 0);
+
+            // Prices of the report are served from the cache afterwards
+            long missCount = state.priceService.getCacheStats().getMissCount();
+            state.reportService.generateReport(state.parameters);
+            assertEquals(missCount, state.priceService.getCacheStats().getMissCount());
+        } finally {
+            state.tearDown();
+        }
+    }
+}
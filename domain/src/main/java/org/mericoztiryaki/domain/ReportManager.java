@@ -1,33 +1,197 @@
 package org.mericoztiryaki.domain;
 
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 import org.mericoztiryaki.domain.exception.ReportGenerationException;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.PreparedReport;
 import org.mericoztiryaki.domain.model.ReportParameters;
 import org.mericoztiryaki.domain.model.ReportRequest;
 import org.mericoztiryaki.domain.model.result.Report;
+import org.mericoztiryaki.domain.port.MetricsSink;
+import org.mericoztiryaki.domain.service.impl.PriceSeries;
 import org.mericoztiryaki.domain.service.impl.ReportService;
+import org.mericoztiryaki.domain.util.Environment;
+import org.mericoztiryaki.domain.util.PipelineMetrics;
 import org.mericoztiryaki.domain.util.ReportParametersUtil;
 import org.mericoztiryaki.domain.writer.ReportWriter;
 import org.mericoztiryaki.domain.writer.WriterFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
 @Log4j2
 @RequiredArgsConstructor
 public class ReportManager {
 
     private final ReportService reportService;
 
+    // Receives the stage metrics of every report besides the json summary
+    @Setter
+    private MetricsSink metricsSink;
+
     public void generateReport(ReportRequest reportRequest) throws ReportGenerationException {
         log.info("Report creation started");
 
-        ReportParameters parameters = ReportParametersUtil.validateReportRequest(reportRequest);
+        PipelineMetrics metrics = new PipelineMetrics(reportRequest.getOutputFileLocation());
+        boolean failed = true;
+        try {
+            metrics.run(() -> {
+                ReportParameters parameters = PipelineMetrics.measure("validation",
+                        () -> ReportParametersUtil.validateReportRequest(reportRequest));
 
-        Report report = reportService.generateReport(parameters);
+                Report report = reportService.generateReport(parameters);
 
-        ReportWriter writer = WriterFactory.getWriter(parameters.getOutputType());
-        writer.build(report, parameters);
+                ReportWriter writer = WriterFactory.getWriter(parameters.getOutputType());
+                PipelineMetrics.measure("write", () -> writer.build(report, parameters));
+            });
+            failed = false;
+        } finally {
+            publish(metrics, failed);
+        }
 
         log.info("Report creation finished");
     }
 
+    // Reports are generated concurrently in chunks. Price requirements of a chunk are merged, so that prices shared
+    // by its reports are fetched and loaded once. A failed report doesn't stop the others, failed count is returned.
+    public int generateReports(List<ReportRequest> reportRequests) {
+        log.info("Batch report creation started. Reports: {}", reportRequests.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Environment.BATCH_PARALLELISM);
+        int failedCount = 0;
+        try {
+            for (int from = 0; from < reportRequests.size(); from += Environment.BATCH_CHUNK_SIZE) {
+                int to = Math.min(reportRequests.size(), from + Environment.BATCH_CHUNK_SIZE);
+                failedCount += generateChunk(reportRequests.subList(from, to), executor);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        log.info("Batch report creation finished. Failed reports: {}", failedCount);
+        return failedCount;
+    }
+
+    private int generateChunk(List<ReportRequest> reportRequests, ExecutorService executor) {
+        List<BatchItem> items = reportRequests.stream().map(BatchItem::new).collect(Collectors.toList());
+
+        runEach(items, executor, item -> item.preparedReport = item.metrics.call(() -> {
+            ReportParameters parameters = PipelineMetrics.measure("validation",
+                    () -> ReportParametersUtil.validateReportRequest(item.request));
+            return reportService.prepareReport(parameters);
+        }));
+
+        List<BatchItem> preparedItems = items.stream()
+                .filter(item -> item.preparedReport != null)
+                .collect(Collectors.toList());
+
+        Map<Instrument, Set<LocalDate>> priceRequirements = new HashMap<>();
+        preparedItems.forEach(item -> item.preparedReport.getPriceRequirements().forEach((instrument, dates) ->
+                priceRequirements.computeIfAbsent(instrument, (i) -> new HashSet<>()).addAll(dates)));
+
+        // Shared prices are measured apart from the reports
+        PipelineMetrics priceMetrics = new PipelineMetrics("batch prices");
+        Map<Instrument, PriceSeries> prices = null;
+        try {
+            prices = priceMetrics.call(() -> reportService.loadPrices(priceRequirements));
+        } catch (RuntimeException e) {
+            log.error("Prices of the batch can't loaded, they are loaded per report: {}", e.getMessage());
+        } finally {
+            publish(priceMetrics, prices == null);
+        }
+
+        // If the shared load fails, each report loads its own prices so that only the reports with failing prices fail
+        Map<Instrument, PriceSeries> sharedPrices = prices;
+        runEach(preparedItems, executor, item -> item.metrics.run(() -> {
+            ReportParameters parameters = item.preparedReport.getParameters();
+            Map<Instrument, PriceSeries> reportPrices = sharedPrices != null ? sharedPrices :
+                    reportService.loadPrices(item.preparedReport.getPriceRequirements());
+            Report report = reportService.generateReport(item.preparedReport, reportPrices);
+
+            ReportWriter writer = WriterFactory.getWriter(parameters.getOutputType());
+            PipelineMetrics.measure("write", () -> writer.build(report, parameters));
+            item.succeeded = true;
+        }));
+
+        items.forEach(item -> publish(item.metrics, !item.succeeded));
+        return (int) items.stream().filter(item -> !item.succeeded).count();
+    }
+
+    // Failures are logged, the other items are processed
+    private static void runEach(List<BatchItem> items, ExecutorService executor, Consumer<BatchItem> task) {
+        List<Future<?>> futures = items.stream()
+                .map(item -> executor.submit(() -> task.accept(item)))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                String input = items.get(i).request.getInputFileLocation();
+                if (e.getCause() instanceof ReportGenerationException) {
+                    log.error("Report of {} can't created: {}", input, e.getCause().getMessage());
+                } else {
+                    log.error("Report of {} can't created", input, e.getCause());
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new ReportGenerationException(e);
+            }
+        }
+    }
+
+    private void publish(PipelineMetrics metrics, boolean failed) {
+        metrics.finish(failed);
+
+        String json = metrics.toJson();
+        log.info("Report metrics: {}", json);
+
+        if (!Environment.REPORT_METRICS_PATH.isEmpty()) {
+            appendMetrics(json);
+        }
+
+        if (metricsSink != null) {
+            metricsSink.accept(metrics);
+        }
+    }
+
+    private static synchronized void appendMetrics(String json) {
+        try {
+            Files.write(Paths.get(Environment.REPORT_METRICS_PATH), (json + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Report metrics can't written", e);
+        }
+    }
+
+    private static class BatchItem {
+        private final ReportRequest request;
+        private final PipelineMetrics metrics;
+        private PreparedReport preparedReport;
+        private boolean succeeded;
+
+        private BatchItem(ReportRequest request) {
+            this.request = request;
+            this.metrics = new PipelineMetrics(request.getOutputFileLocation());
+        }
+    }
+
 }
@@ -0,0 +1,16 @@
+package org.mericoztiryaki.domain.model;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@Data
+@RequiredArgsConstructor
+public class CacheStats {
+    private final long size;
+    private final long maximumSize;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long totalLoadTimeNanos;
+    private final long evictionCount;
+}
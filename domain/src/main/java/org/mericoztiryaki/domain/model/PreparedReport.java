@@ -0,0 +1,27 @@
+package org.mericoztiryaki.domain.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionTimeline;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Transactions of a report and the prices its tables will look up, so that prices of several reports can be loaded
+// together before they are analyzed
+@Getter
+@RequiredArgsConstructor
+public class PreparedReport {
+
+    private final ReportParameters parameters;
+
+    private final List<ITransaction> transactions;
+
+    private final Map<Instrument, TransactionTimeline> timelines;
+
+    private final Map<Instrument, Set<LocalDate>> priceRequirements;
+
+}
@@ -3,11 +3,11 @@ package org.mericoztiryaki.domain.model;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 
-import java.util.Map;
+import java.time.LocalDate;
 
 @Data
 @RequiredArgsConstructor
 public class Price {
-    private final String day;
-    private final Map<String, String> quotes;
+    private final LocalDate day;
+    private final Quotes quotes;
 }
@@ -1,33 +1,197 @@
 package org.mericoztiryaki.domain.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 import org.mericoztiryaki.domain.model.constant.Currency;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+// Values are kept in an array indexed by Currency.ordinal(), getValue() exposes them as a map view.
 public class Quotes implements Serializable {
 
-    private static final long serialVersionUID = 2;
+    private static final long serialVersionUID = 3;
 
-    public static Quotes ZERO = new Quotes(Map.of(
-            Currency.USD, BigDecimal.ZERO,
-            Currency.EUR, BigDecimal.ZERO,
-            Currency.TRY, BigDecimal.ZERO)
-    );
+    private static final Currency[] CURRENCIES = Currency.values();
 
-    private Map<Currency, BigDecimal> value = new HashMap<>();
+    // Shared zero, it can't be modified. zero() returns an instance which can be used as an accumulator.
+    public static final Quotes ZERO = new ReadOnlyQuotes(zero());
+
+    private final BigDecimal[] values = new BigDecimal[CURRENCIES.length];
+
+    private transient Map<Currency, BigDecimal> view;
+
+    public Quotes() {
+    }
+
+    public Quotes(Map<Currency, BigDecimal> value) {
+        setValue(value);
+    }
+
+    // Returns a new instance, which can be used as an accumulator
+    public static Quotes zero() {
+        Quotes quotes = new Quotes();
+        Arrays.fill(quotes.values, BigDecimal.ZERO);
+        return quotes;
+    }
+
+    // Read-only copy, returned as it is if it is read-only already
+    public static Quotes readOnly(Quotes quotes) {
+        return quotes instanceof ReadOnlyQuotes ? quotes : new ReadOnlyQuotes(quotes);
+    }
+
+    public Quotes copy() {
+        Quotes quotes = new Quotes();
+        System.arraycopy(values, 0, quotes.values, 0, values.length);
+        return quotes;
+    }
+
+    public BigDecimal get(Currency currency) {
+        return values[currency.ordinal()];
+    }
+
+    public void set(Currency currency, BigDecimal value) {
+        values[currency.ordinal()] = value;
+    }
+
+    public Map<Currency, BigDecimal> getValue() {
+        if (view == null) {
+            view = new ValueView();
+        }
+        return view;
+    }
+
+    public void setValue(Map<Currency, BigDecimal> value) {
+        Arrays.fill(values, null);
+        value.forEach(this::set);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Quotes)) {
+            return false;
+        }
+        return Arrays.equals(values, ((Quotes) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
 
     @Override
     public String toString() {
-        return value.toString();
+        return getValue().toString();
+    }
+
+    private class ValueView extends AbstractMap<Currency, BigDecimal> {
+
+        @Override
+        public BigDecimal get(Object key) {
+            return key instanceof Currency ? values[((Currency) key).ordinal()] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public BigDecimal put(Currency key, BigDecimal value) {
+            BigDecimal previous = values[key.ordinal()];
+            set(key, value);
+            return previous;
+        }
+
+        @Override
+        public BigDecimal remove(Object key) {
+            if (!(key instanceof Currency)) {
+                return null;
+            }
+            return put((Currency) key, null);
+        }
+
+        @Override
+        public Set<Entry<Currency, BigDecimal>> entrySet() {
+            return new AbstractSet<Entry<Currency, BigDecimal>>() {
+                @Override
+                public Iterator<Entry<Currency, BigDecimal>> iterator() {
+                    return new Iterator<Entry<Currency, BigDecimal>>() {
+                        private int next = advance(0);
+                        private int last = -1;
+
+                        private int advance(int from) {
+                            while (from < values.length && values[from] == null) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < values.length;
+                        }
+
+                        @Override
+                        public Entry<Currency, BigDecimal> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            last = next;
+                            next = advance(next + 1);
+                            return new SimpleEntry<>(CURRENCIES[last], values[last]);
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last < 0) {
+                                throw new IllegalStateException();
+                            }
+                            set(CURRENCIES[last], null);
+                            last = -1;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (BigDecimal v: values) {
+                        if (v != null) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+
+    private static class ReadOnlyQuotes extends Quotes {
+
+        private static final long serialVersionUID = 1;
+
+        private ReadOnlyQuotes(Quotes quotes) {
+            System.arraycopy(quotes.values, 0, super.values, 0, quotes.values.length);
+        }
+
+        @Override
+        public void set(Currency currency, BigDecimal value) {
+            throw new UnsupportedOperationException("Quotes are read-only");
+        }
+
+        @Override
+        public void setValue(Map<Currency, BigDecimal> value) {
+            throw new UnsupportedOperationException("Quotes are read-only");
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -3,17 +3,16 @@ package org.mericoztiryaki.domain.model;
 import lombok.Builder;
 import lombok.Getter;
 import org.mericoztiryaki.domain.model.constant.*;
-import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.port.TransactionSource;
 
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Set;
 
 @Getter
 @Builder
 public class ReportParameters {
 
-    private List<TransactionDefinition> transactions;
+    private TransactionSource transactions;
 
     private LocalDate reportDate;
 
@@ -4,12 +4,11 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import org.mericoztiryaki.domain.model.constant.*;
-import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.port.TransactionSource;
 
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 @Setter
@@ -19,7 +18,7 @@ public class ReportRequest {
 
     private String inputFileLocation;
 
-    private List<TransactionDefinition> transactions;
+    private TransactionSource transactions;
 
     private LocalDate reportDate;
 
@@ -21,6 +21,6 @@ public class AggregatedAnalyzeResult {
 
     private final Map<Period, Optional<Quotes>> roiCalculation = new HashMap<>();
 
-    private Quotes totalValue = Quotes.ZERO;
+    private Quotes totalValue = Quotes.zero();
 
 }
@@ -16,13 +16,13 @@ public class HistoricalAnalyzeResult {
     private final LocalDate start;
     private final LocalDate end;
 
-    private Quotes initialValue = Quotes.ZERO;
+    private Quotes initialValue = Quotes.zero();
 
-    private Quotes totalValue = Quotes.ZERO;
+    private Quotes totalValue = Quotes.zero();
 
-    private Quotes cashFlow = Quotes.ZERO;
+    private Quotes cashFlow = Quotes.zero();
 
-    private Quotes pnl = Quotes.ZERO;
+    private Quotes pnl = Quotes.zero();
 
     private Quotes change;
 
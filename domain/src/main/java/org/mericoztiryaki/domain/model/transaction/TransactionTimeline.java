@@ -0,0 +1,123 @@
+package org.mericoztiryaki.domain.model.transaction;
+
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.TransactionType;
+import org.mericoztiryaki.domain.util.QuotesUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Date sorted transactions of an instrument with running totals. Totals until a day are found with a binary search over
+// the transaction days, so windowing doesn't depend on the length of the history before the window.
+public class TransactionTimeline {
+
+    private final Instrument instrument;
+    private final List<ITransaction> transactions;
+
+    private final long[] epochDays;
+
+    // Index i holds the total of the first i transactions. Quotes are shared, they must not be modified.
+    private final BigDecimal[] amounts;
+    private final Quotes[] commissions;
+    private final Quotes[] buyCosts;
+    private final Quotes[] sellIncomes;
+
+    // Transactions must be of the same instrument and sorted by date
+    public TransactionTimeline(List<ITransaction> transactions) {
+        int size = transactions.size();
+
+        this.instrument = size > 0 ? transactions.get(0).getInstrument() : null;
+        this.transactions = transactions;
+        this.epochDays = new long[size];
+        this.amounts = new BigDecimal[size + 1];
+        this.commissions = new Quotes[size + 1];
+        this.buyCosts = new Quotes[size + 1];
+        this.sellIncomes = new Quotes[size + 1];
+
+        amounts[0] = BigDecimal.ZERO;
+        commissions[0] = Quotes.ZERO;
+        buyCosts[0] = Quotes.ZERO;
+        sellIncomes[0] = Quotes.ZERO;
+
+        for (int i = 0; i < size; i++) {
+            ITransaction t = transactions.get(i);
+            epochDays[i] = t.getDate().toLocalDate().toEpochDay();
+            commissions[i + 1] = QuotesUtil.add(commissions[i], t.getCommissionPrice());
+
+            if (t.getTransactionType() == TransactionType.BUY) {
+                amounts[i + 1] = amounts[i].add(t.getAmount());
+                buyCosts[i + 1] = QuotesUtil.addProductTo(buyCosts[i].copy(), t.getPurchasePrice(), t.getAmount());
+                sellIncomes[i + 1] = sellIncomes[i];
+            } else {
+                amounts[i + 1] = amounts[i].subtract(t.getAmount());
+                buyCosts[i + 1] = buyCosts[i];
+                sellIncomes[i + 1] = QuotesUtil.addProductTo(sellIncomes[i].copy(), t.getPurchasePrice(), t.getAmount());
+            }
+        }
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    public List<ITransaction> getTransactions() {
+        return transactions;
+    }
+
+    public LocalDate getFirstDay() {
+        return LocalDate.ofEpochDay(epochDays[0]);
+    }
+
+    public LocalDate getLastDay() {
+        return LocalDate.ofEpochDay(epochDays[epochDays.length - 1]);
+    }
+
+    // Number of transactions happened until the end of the day
+    public int countUntil(LocalDate day) {
+        long epochDay = day.toEpochDay();
+        int low = 0;
+        int high = epochDays.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] <= epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public BigDecimal getAmountUntil(LocalDate day) {
+        return amounts[countUntil(day)];
+    }
+
+    public BigDecimal getFinalAmount() {
+        return amounts[amounts.length - 1];
+    }
+
+    public Quotes getBuyCostUntil(LocalDate day) {
+        return buyCosts[countUntil(day)];
+    }
+
+    public Quotes getSellIncomeUntil(LocalDate day) {
+        return sellIncomes[countUntil(day)];
+    }
+
+    // Transactions happened after the start day, until the end of the end day
+    public List<ITransaction> getTransactionsBetween(LocalDate start, LocalDate end) {
+        int from = countUntil(start);
+        return transactions.subList(from, Math.max(from, countUntil(end)));
+    }
+
+    // Position carried into a window which starts at the given day, purchase price is not set. The unified transaction
+    // owns its list, so adding to it doesn't change the timeline.
+    public UnifiedTransaction unifyUntil(LocalDate day) {
+        int count = countUntil(day);
+        return new UnifiedTransaction(day.atStartOfDay(), instrument, amounts[count], commissions[count].copy(),
+                new ArrayList<>(transactions.subList(0, count)));
+    }
+}
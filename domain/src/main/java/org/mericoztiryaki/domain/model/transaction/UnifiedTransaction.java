@@ -26,13 +26,22 @@ public class UnifiedTransaction implements ITransaction {
 
     private BigDecimal amount = BigDecimal.ZERO;
 
-    private Quotes commissionPrice = Quotes.ZERO;
+    private Quotes commissionPrice = Quotes.zero();
 
     private List<ITransaction> unifiedTransactions = new ArrayList<>();
 
+    public UnifiedTransaction(LocalDateTime date, Instrument instrument, BigDecimal amount, Quotes commissionPrice,
+                              List<ITransaction> unifiedTransactions) {
+        this.date = date;
+        this.instrument = instrument;
+        this.amount = amount;
+        this.commissionPrice = commissionPrice;
+        this.unifiedTransactions = unifiedTransactions;
+    }
+
     public void addTransaction(ITransaction t) {
         unifiedTransactions.add(t);
-        this.commissionPrice = QuotesUtil.add(this.commissionPrice, t.getCommissionPrice());
+        QuotesUtil.addTo(this.commissionPrice, t.getCommissionPrice());
 
         if (t.getTransactionType() == TransactionType.BUY) {
             this.amount = this.amount.add(t.getAmount());
@@ -0,0 +1,10 @@
+package org.mericoztiryaki.domain.port;
+
+import org.mericoztiryaki.domain.util.PipelineMetrics;
+
+public interface MetricsSink {
+
+    // Called once for every report, failed ones included
+    void accept(PipelineMetrics metrics);
+
+}
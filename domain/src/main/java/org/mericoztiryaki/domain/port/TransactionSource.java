@@ -0,0 +1,23 @@
+package org.mericoztiryaki.domain.port;
+
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+
+import java.util.stream.Stream;
+
+public interface TransactionSource {
+
+    // Returns a new stream on every call, definitions are read lazily in input order. Stream must be closed after use.
+    Stream<TransactionDefinition> stream();
+
+    // Identifies the content of the source, converted transactions are reused while it stays the same. Null disables reuse.
+    default String fingerprint() {
+        return null;
+    }
+
+    // Identifies the source itself, stays the same while its content changes. Results of the previous report of the
+    // source are reused for the unchanged part of its transactions. Null disables reuse.
+    default String identity() {
+        return null;
+    }
+
+}
@@ -1,17 +1,34 @@
 package org.mericoztiryaki.domain.service;
 
 import org.mericoztiryaki.domain.exception.PriceApiException;
+import org.mericoztiryaki.domain.model.CacheStats;
 import org.mericoztiryaki.domain.model.Instrument;
 import org.mericoztiryaki.domain.model.Quotes;
 import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.service.impl.PriceSeries;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 public interface IPriceService {
 
+    void prefetchPrices(Map<Instrument, Set<LocalDate>> requiredDates) throws PriceApiException;
+
     Quotes getPrice(Instrument instrument, LocalDate date) throws PriceApiException;
 
+    // Prices of the given dates are loaded into a dense series, other dates are read through this service
+    PriceSeries getPriceSeries(Instrument instrument, Collection<LocalDate> dates) throws PriceApiException;
+
     Quotes calculateExchangeRates(LocalDate date, BigDecimal price, Currency source) throws PriceApiException;
 
+    // Identifies the persisted prices of the instruments, it changes whenever a price of one of them is added and not
+    // when prices of other instruments are. Results calculated from their served prices can be reused while it is the
+    // same, since a day served without a price can only get one by an addition. 0 if prices are not persisted.
+    long getPriceVersion(Collection<Instrument> instruments);
+
+    CacheStats getCacheStats();
+
 }
@@ -1,11 +1,25 @@
 package org.mericoztiryaki.domain.service;
 
 import org.mericoztiryaki.domain.exception.ReportGenerationException;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.PreparedReport;
 import org.mericoztiryaki.domain.model.ReportParameters;
 import org.mericoztiryaki.domain.model.result.Report;
+import org.mericoztiryaki.domain.service.impl.PriceSeries;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
 
 public interface IReportService {
 
     Report generateReport(ReportParameters reportParameters) throws ReportGenerationException;
 
+    PreparedReport prepareReport(ReportParameters reportParameters) throws ReportGenerationException;
+
+    // Fetches the missing prices and loads them into series, which can be shared by several reports
+    Map<Instrument, PriceSeries> loadPrices(Map<Instrument, Set<LocalDate>> priceRequirements) throws ReportGenerationException;
+
+    Report generateReport(PreparedReport preparedReport, Map<Instrument, PriceSeries> prices) throws ReportGenerationException;
+
 }
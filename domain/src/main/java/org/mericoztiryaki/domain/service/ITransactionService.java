@@ -5,6 +5,7 @@ import org.mericoztiryaki.domain.model.Instrument;
 import org.mericoztiryaki.domain.model.constant.Period;
 import org.mericoztiryaki.domain.model.transaction.ITransaction;
 import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.model.transaction.TransactionTimeline;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -15,11 +16,19 @@ public interface ITransactionService {
 
     ITransaction buildTransactionObject(TransactionDefinition definition) throws InvalidTransactionDefinitionException;
 
+    List<ITransaction> buildTransactionObjects(List<TransactionDefinition> definitions) throws InvalidTransactionDefinitionException;
+
     Map<Instrument, List<ITransaction>> getOpenPositions(List<ITransaction> transactions);
 
     Map<Period, List<ITransaction>> createTransactionSetsByPeriods(List<ITransaction> transactions,
                                                                    Set<Period> periods,
                                                                    LocalDate portfolioDate);
 
+    Map<Period, List<ITransaction>> createTransactionSetsByPeriods(TransactionTimeline timeline,
+                                                                   Set<Period> periods,
+                                                                   LocalDate portfolioDate);
+
     List<ITransaction> createTransactionSetByWindow(List<ITransaction> transactions, LocalDate start, LocalDate end);
+
+    TransactionTimeline createTimeline(List<ITransaction> transactions);
 }
@@ -1,5 +1,6 @@
 package org.mericoztiryaki.domain.service.impl;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.mericoztiryaki.domain.model.Quotes;
 import org.mericoztiryaki.domain.model.constant.TransactionType;
@@ -13,80 +14,128 @@ import org.mericoztiryaki.domain.util.QuotesUtil;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Supplier;
 
+// Each metric is calculated on its first call and the same read-only instance is returned afterwards, so callers can't
+// modify the memoized results. Metrics are not calculated together since ROI and unit cost can't be calculated for
+// every transaction set (e.g. unit cost of a closed position).
 @Getter
 public class Analyzer implements IAnalyzer {
 
-    private final IPriceService priceService;
     private final List<ITransaction> transactions;
-    private final LocalDate portfolioDate;
 
-    private Quotes totalCost = Quotes.ZERO;
-    private Quotes totalIncome = Quotes.ZERO;
-    private BigDecimal totalAmount = BigDecimal.ZERO;
+    @Getter(AccessLevel.NONE)
+    private final Supplier<Quotes> price;
+
+    private Quotes totalCost;
+    private Quotes totalIncome;
+    private BigDecimal totalAmount;
+
+    @Getter(AccessLevel.NONE)
+    private Quotes initialValue;
+    @Getter(AccessLevel.NONE)
+    private Quotes totalValue;
+    @Getter(AccessLevel.NONE)
+    private Quotes pnl;
+    @Getter(AccessLevel.NONE)
+    private Quotes roi;
+    @Getter(AccessLevel.NONE)
+    private Quotes unitCost;
 
     public Analyzer(IPriceService priceService, List<ITransaction> transactions, LocalDate portfolioDate) {
-        this.priceService = priceService;
+        this(transactions, () -> priceService.getPrice(transactions.get(0).getInstrument(), portfolioDate));
+    }
+
+    // Price is the price of the transactions' instrument at the portfolio date
+    public Analyzer(List<ITransaction> transactions, Supplier<Quotes> price) {
         this.transactions = transactions;
-        this.portfolioDate = portfolioDate;
+        this.price = price;
         this.calculate();
     }
 
+    // Price lookup which can be shared by the analyzers of an instrument. It is made at most once, and only if an
+    // analyzer with an open position asks for it.
+    public static Supplier<Quotes> sharedPrice(PriceSeries prices, LocalDate portfolioDate) {
+        return new Supplier<Quotes>() {
+            private Quotes value;
+
+            @Override
+            public synchronized Quotes get() {
+                if (value == null) {
+                    value = prices.get(portfolioDate);
+                }
+                return value;
+            }
+        };
+    }
+
     public void calculate() {
+        Quotes cost = Quotes.zero();
+        Quotes income = Quotes.zero();
+        BigDecimal amount = BigDecimal.ZERO;
         for (ITransaction t: transactions) {
             if (t.getTransactionType() == TransactionType.BUY) {
-                totalCost = QuotesUtil.add(
-                        totalCost,
-                        QuotesUtil.multiply(t.getPurchasePrice(), t.getAmount())
-                );
-                totalAmount = totalAmount.add(t.getAmount());
+                QuotesUtil.addProductTo(cost, t.getPurchasePrice(), t.getAmount());
+                amount = amount.add(t.getAmount());
             } else {
-                totalIncome = QuotesUtil.add(
-                        totalIncome,
-                        QuotesUtil.multiply(t.getPurchasePrice(), t.getAmount())
-                );
-                totalAmount = totalAmount.subtract(t.getAmount());
+                QuotesUtil.addProductTo(income, t.getPurchasePrice(), t.getAmount());
+                amount = amount.subtract(t.getAmount());
             }
         }
+
+        this.totalCost = Quotes.readOnly(cost);
+        this.totalIncome = Quotes.readOnly(income);
+        this.totalAmount = amount;
     }
 
     @Override
     public Quotes calculateInitialValue() {
-        return this.transactions.stream()
-                .filter(t -> t instanceof UnifiedTransaction)
-                .findFirst()
-                .map(t -> QuotesUtil.multiply(t.getPurchasePrice(), t.getAmount()))
-                .orElse(Quotes.ZERO);
+        if (initialValue == null) {
+            initialValue = this.transactions.stream()
+                    .filter(t -> t instanceof UnifiedTransaction)
+                    .findFirst()
+                    .map(t -> Quotes.readOnly(QuotesUtil.multiply(t.getPurchasePrice(), t.getAmount())))
+                    .orElse(Quotes.ZERO);
+        }
+        return initialValue;
     }
 
     @Override
     public Quotes calculateTotalValue() {
-        if (BigDecimalUtil.isZero(totalAmount)) {
-            return Quotes.ZERO;
+        if (totalValue == null) {
+            totalValue = BigDecimalUtil.isZero(totalAmount) ? Quotes.ZERO :
+                    Quotes.readOnly(QuotesUtil.multiply(price.get(), totalAmount));
         }
-
-        Quotes price = priceService.getPrice(transactions.get(0).getInstrument(), portfolioDate);
-        return QuotesUtil.multiply(price, totalAmount);
+        return totalValue;
     }
 
     @Override
     public Quotes calculatePNL() {
-        return QuotesUtil.subtract(
-                QuotesUtil.add(totalIncome, calculateTotalValue()),
-                totalCost
-        );
+        if (pnl == null) {
+            pnl = Quotes.readOnly(QuotesUtil.subtractFrom(
+                    QuotesUtil.add(totalIncome, calculateTotalValue()),
+                    totalCost
+            ));
+        }
+        return pnl;
     }
 
     @Override
     public Quotes calculateROI() {
-        return QuotesUtil.divide(calculatePNL(), totalCost);
+        if (roi == null) {
+            roi = Quotes.readOnly(QuotesUtil.divide(calculatePNL(), totalCost));
+        }
+        return roi;
     }
 
     @Override
     public Quotes calculateUnitCost() {
-        return QuotesUtil.divide(
-                QuotesUtil.subtract(calculateTotalValue(), calculatePNL()),
-                totalAmount
-        );
+        if (unitCost == null) {
+            unitCost = Quotes.readOnly(QuotesUtil.divide(
+                    QuotesUtil.subtract(calculateTotalValue(), calculatePNL()),
+                    totalAmount
+            ));
+        }
+        return unitCost;
     }
 }
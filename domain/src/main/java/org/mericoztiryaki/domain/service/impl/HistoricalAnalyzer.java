@@ -0,0 +1,56 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.transaction.TransactionTimeline;
+import org.mericoztiryaki.domain.util.BigDecimalUtil;
+import org.mericoztiryaki.domain.util.QuotesUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Analyzes windows of an instrument using the running totals of its transaction timeline, a window's result is
+// derived from the totals at its start and end. Results are the same as running an Analyzer over
+// TransactionService.createTransactionSetByWindow of each window.
+public class HistoricalAnalyzer {
+
+    private final PriceSeries prices;
+    private final TransactionTimeline timeline;
+
+    public HistoricalAnalyzer(PriceSeries prices, TransactionTimeline timeline) {
+        this.prices = prices;
+        this.timeline = timeline;
+    }
+
+    public WindowResult analyzeWindow(LocalDate start, LocalDate end) {
+        BigDecimal amountAtStart = timeline.getAmountUntil(start);
+        BigDecimal amountAtEnd = timeline.getAmountUntil(end);
+
+        // Position carried into the window is valued at the window start price
+        Quotes initialValue = Quotes.zero();
+        Quotes cost = QuotesUtil.subtract(timeline.getBuyCostUntil(end), timeline.getBuyCostUntil(start));
+        if (!BigDecimalUtil.isZero(amountAtStart)) {
+            initialValue = QuotesUtil.multiply(prices.get(start), amountAtStart);
+            QuotesUtil.addTo(cost, initialValue);
+        }
+
+        Quotes totalValue = Quotes.zero();
+        if (!BigDecimalUtil.isZero(amountAtEnd)) {
+            totalValue = QuotesUtil.multiply(prices.get(end), amountAtEnd);
+        }
+
+        Quotes income = QuotesUtil.subtract(timeline.getSellIncomeUntil(end), timeline.getSellIncomeUntil(start));
+        Quotes pnl = QuotesUtil.subtractFrom(QuotesUtil.addTo(income, totalValue), cost);
+
+        return new WindowResult(initialValue, totalValue, pnl);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class WindowResult {
+        private final Quotes initialValue;
+        private final Quotes totalValue;
+        private final Quotes pnl;
+    }
+}
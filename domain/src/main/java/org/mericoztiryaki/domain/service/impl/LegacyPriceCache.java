@@ -0,0 +1,106 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Reader of the price cache file written before the price store, a serialized map of cache keys to quotes. The old
+// key and quotes classes are read into local copies, no other class than the ones of that map is deserialized.
+@Log4j2
+class LegacyPriceCache {
+
+    private static final String QUOTES_CLASS = "org.mericoztiryaki.domain.model.Quotes";
+    private static final String CACHE_KEY_CLASS = "org.mericoztiryaki.domain.service.impl.PriceService$CacheKey";
+
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+            "java.util.HashMap", "java.util.CollSer", "java.lang.Number", "java.lang.Enum", "java.math.BigDecimal",
+            "java.math.BigInteger", "[B", "java.time.Ser", "org.mericoztiryaki.domain.model.Instrument",
+            "org.mericoztiryaki.domain.model.constant.InstrumentType", "org.mericoztiryaki.domain.model.constant.Currency",
+            LegacyQuotes.class.getName(), LegacyCacheKey.class.getName()));
+
+    // Returns null if the file is not a legacy price cache
+    static Map<Instrument, Map<LocalDate, Quotes>> read(File file) {
+        try (ObjectInputStream in = new LegacyInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Object object = in.readObject();
+            if (!(object instanceof Map)) {
+                return null;
+            }
+
+            Map<Instrument, Map<LocalDate, Quotes>> prices = new HashMap<>();
+            for (Map.Entry<?, ?> e: ((Map<?, ?>) object).entrySet()) {
+                if (!(e.getKey() instanceof LegacyCacheKey) || !(e.getValue() instanceof LegacyQuotes)) {
+                    return null;
+                }
+
+                LegacyCacheKey key = (LegacyCacheKey) e.getKey();
+                LegacyQuotes quotes = (LegacyQuotes) e.getValue();
+                if (key.instrument == null || key.date == null || quotes.value == null) {
+                    return null;
+                }
+                prices.computeIfAbsent(key.instrument, (i) -> new HashMap<>()).put(key.date, new Quotes(quotes.value));
+            }
+            return prices;
+        } catch (Exception e) {
+            log.debug("File is not a legacy price cache: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static class LegacyInputStream extends ObjectInputStream {
+
+        LegacyInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            if (QUOTES_CLASS.equals(descriptor.getName())) {
+                return ObjectStreamClass.lookup(LegacyQuotes.class);
+            }
+            if (CACHE_KEY_CLASS.equals(descriptor.getName())) {
+                return ObjectStreamClass.lookup(LegacyCacheKey.class);
+            }
+            return descriptor;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+            if (!ALLOWED_CLASSES.contains(descriptor.getName())) {
+                throw new InvalidClassException(descriptor.getName(), "Unexpected class in price cache");
+            }
+            return super.resolveClass(descriptor);
+        }
+    }
+
+    // Fields of the old quotes class
+    private static class LegacyQuotes implements Serializable {
+        private static final long serialVersionUID = 2;
+        private Map<Currency, BigDecimal> value;
+    }
+
+    // Fields of the old cache key class
+    private static class LegacyCacheKey implements Serializable {
+        private static final long serialVersionUID = 3;
+        private Instrument instrument;
+        private LocalDate date;
+    }
+}
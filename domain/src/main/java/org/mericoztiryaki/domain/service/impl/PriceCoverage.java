@@ -0,0 +1,233 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Date ranges of an instrument that are already asked to the price source. Days of a covered range without a price
+// are non-trading days (weekends, holidays), they are answered without asking the source again. A range which was
+// answered without any price (e.g. a delisted fund) is kept as a confirmed empty range until its ttl expires, since
+// the source may get its prices later. Missing prices of the recent days may still be published, and the days after
+// the last price of a range may be a gap of the source rather than a holiday, they are kept as empty ranges as well.
+// Only the days before today are covered, since today's price may not be published yet.
+public class PriceCoverage {
+
+    // Merged, non-overlapping ranges as start epoch day -> end epoch day (inclusive)
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+    private final TreeSet<Long> nonTradingDays = new TreeSet<>();
+
+    // Confirmed empty ranges as start epoch day -> (end epoch day, expiry epoch millis), they may overlap
+    private final TreeMap<Long, long[]> emptyRanges = new TreeMap<>();
+
+    // Missing prices after the last price of the range or in the last recentDays days before today are kept with the
+    // ttl of the empty ranges
+    public synchronized void addRange(LocalDate start, LocalDate end, Set<LocalDate> pricedDays, int recentDays,
+                                      long emptyRangeTtlMillis) {
+        long first = start.toEpochDay();
+        long last = Math.min(end.toEpochDay(), LocalDate.now().minusDays(1).toEpochDay());
+        if (last < first) {
+            return;
+        }
+
+        long expiresAt = System.currentTimeMillis() + emptyRangeTtlMillis;
+        if (pricedDays.isEmpty()) {
+            addEmptyRange(first, last, expiresAt);
+            return;
+        }
+
+        // Empty ranges which have prices now
+        long rangeStart = first;
+        long rangeEnd = last;
+        emptyRanges.entrySet().removeIf(e -> e.getKey() >= rangeStart && e.getValue()[0] <= rangeEnd);
+
+        // Days after this are recent or after the last price of the range, their missing prices are not final
+        long lastPricedDay = pricedDays.stream()
+                .mapToLong(LocalDate::toEpochDay)
+                .filter(day -> day >= rangeStart && day <= rangeEnd)
+                .max()
+                .orElse(first - 1);
+        long settledLast = Math.min(Math.min(last, lastPricedDay), LocalDate.now().minusDays(recentDays + 1).toEpochDay());
+
+        if (settledLast >= first) {
+            merge(ranges, first, settledLast);
+        }
+
+        // Priced recent days are covered, the gaps between them are empty ranges
+        Long gapStart = null;
+        for (long day = first; day <= last; day++) {
+            if (pricedDays.contains(LocalDate.ofEpochDay(day))) {
+                nonTradingDays.remove(day);
+                if (gapStart != null) {
+                    addEmptyRange(gapStart, day - 1, expiresAt);
+                    gapStart = null;
+                }
+                if (day > settledLast) {
+                    merge(ranges, day, day);
+                }
+            } else if (day <= settledLast) {
+                nonTradingDays.add(day);
+            } else if (gapStart == null) {
+                gapStart = day;
+            }
+        }
+        if (gapStart != null) {
+            addEmptyRange(gapStart, last, expiresAt);
+        }
+    }
+
+    public synchronized boolean isNonTradingDay(LocalDate date) {
+        long day = date.toEpochDay();
+        if (nonTradingDays.contains(day)) {
+            return true;
+        }
+
+        removeExpiredRanges();
+        for (long[] emptyRange: emptyRanges.headMap(day, true).values()) {
+            if (emptyRange[0] >= day) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Parts of the given range which are not covered yet
+    public synchronized List<Pair<LocalDate, LocalDate>> getMissingRanges(LocalDate start, LocalDate end) {
+        removeExpiredRanges();
+
+        TreeMap<Long, Long> covered = ranges;
+        if (!emptyRanges.isEmpty()) {
+            covered = new TreeMap<>(ranges);
+            for (Map.Entry<Long, long[]> e: emptyRanges.entrySet()) {
+                merge(covered, e.getKey(), e.getValue()[0]);
+            }
+        }
+
+        List<Pair<LocalDate, LocalDate>> missing = new ArrayList<>();
+
+        long cursor = start.toEpochDay();
+        long last = end.toEpochDay();
+
+        Map.Entry<Long, Long> range = covered.floorEntry(cursor);
+        if (range == null || range.getValue() < cursor) {
+            range = covered.higherEntry(cursor);
+        }
+
+        while (cursor <= last) {
+            if (range == null || range.getKey() > last) {
+                missing.add(Pair.of(LocalDate.ofEpochDay(cursor), end));
+                break;
+            }
+            if (range.getKey() > cursor) {
+                missing.add(Pair.of(LocalDate.ofEpochDay(cursor), LocalDate.ofEpochDay(range.getKey() - 1)));
+            }
+            cursor = range.getValue() + 1;
+            range = covered.higherEntry(range.getKey());
+        }
+
+        return missing;
+    }
+
+    public synchronized void write(DataOutputStream out) throws IOException {
+        removeExpiredRanges();
+
+        out.writeInt(ranges.size());
+        for (Map.Entry<Long, Long> e: ranges.entrySet()) {
+            out.writeInt(e.getKey().intValue());
+            out.writeInt(e.getValue().intValue());
+        }
+
+        // Non-trading days are written as runs of consecutive days
+        List<long[]> runs = new ArrayList<>();
+        for (long day: nonTradingDays) {
+            long[] run = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (run != null && run[1] == day - 1) {
+                run[1] = day;
+            } else {
+                runs.add(new long[]{day, day});
+            }
+        }
+        out.writeInt(runs.size());
+        for (long[] run: runs) {
+            out.writeInt((int) run[0]);
+            out.writeInt((int) run[1]);
+        }
+
+        out.writeInt(emptyRanges.size());
+        for (Map.Entry<Long, long[]> e: emptyRanges.entrySet()) {
+            out.writeInt(e.getKey().intValue());
+            out.writeInt((int) e.getValue()[0]);
+            out.writeLong(e.getValue()[1]);
+        }
+    }
+
+    public static PriceCoverage read(DataInputStream in) throws IOException {
+        PriceCoverage coverage = new PriceCoverage();
+
+        int rangeCount = in.readInt();
+        for (int i = 0; i < rangeCount; i++) {
+            coverage.ranges.put((long) in.readInt(), (long) in.readInt());
+        }
+
+        int runCount = in.readInt();
+        for (int i = 0; i < runCount; i++) {
+            long first = in.readInt();
+            long last = in.readInt();
+            for (long day = first; day <= last; day++) {
+                coverage.nonTradingDays.add(day);
+            }
+        }
+
+        int emptyRangeCount = in.readInt();
+        for (int i = 0; i < emptyRangeCount; i++) {
+            long first = in.readInt();
+            long last = in.readInt();
+            long expiresAt = in.readLong();
+            coverage.emptyRanges.put(first, new long[]{last, expiresAt});
+        }
+
+        return coverage;
+    }
+
+    private void addEmptyRange(long first, long last, long expiresAt) {
+        long[] previous = emptyRanges.get(first);
+        if (previous == null || previous[0] <= last) {
+            emptyRanges.put(first, new long[]{last, expiresAt});
+        }
+    }
+
+    private void removeExpiredRanges() {
+        long now = System.currentTimeMillis();
+        Iterator<long[]> iterator = emptyRanges.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next()[1] <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Adds the range to the merged ranges, touching ones are joined
+    private static void merge(TreeMap<Long, Long> ranges, long first, long last) {
+        Map.Entry<Long, Long> previous = ranges.floorEntry(first);
+        if (previous != null && previous.getValue() >= first - 1) {
+            first = previous.getKey();
+            last = Math.max(last, previous.getValue());
+        }
+        Map.Entry<Long, Long> next = ranges.ceilingEntry(first);
+        while (next != null && next.getKey() <= last + 1) {
+            last = Math.max(last, next.getValue());
+            ranges.remove(next.getKey());
+            next = ranges.ceilingEntry(first);
+        }
+        ranges.put(first, last);
+    }
+}
@@ -0,0 +1,57 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.service.IPriceService;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+// Prices of an instrument at the dates a report needs, stored in an array indexed by the epoch day offset so that
+// lookups don't allocate or hash. Dates which are not loaded are read through the price service.
+public class PriceSeries {
+
+    // Marks loaded dates without a price (non-trading days)
+    private static final Quotes NO_PRICE = new Quotes();
+
+    private final IPriceService priceService;
+    private final Instrument instrument;
+
+    private final long firstDay;
+    private final Quotes[] prices;
+
+    public PriceSeries(IPriceService priceService, Instrument instrument, Collection<LocalDate> dates) {
+        this.priceService = priceService;
+        this.instrument = instrument;
+
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (LocalDate date: dates) {
+            first = Math.min(first, date.toEpochDay());
+            last = Math.max(last, date.toEpochDay());
+        }
+
+        this.firstDay = first;
+        this.prices = new Quotes[dates.isEmpty() ? 0 : (int) (last - first + 1)];
+
+        for (LocalDate date: dates) {
+            Quotes price = priceService.getPrice(instrument, date);
+            prices[(int) (date.toEpochDay() - firstDay)] = price != null ? price : NO_PRICE;
+        }
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    public Quotes get(LocalDate date) {
+        long i = date.toEpochDay() - firstDay;
+        if (i >= 0 && i < prices.length) {
+            Quotes price = prices[(int) i];
+            if (price != null) {
+                return price != NO_PRICE ? price : null;
+            }
+        }
+        return priceService.getPrice(instrument, date);
+    }
+}
@@ -2,7 +2,9 @@ package org.mericoztiryaki.domain.service.impl;
 
 import lombok.Data;
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.tuple.Pair;
 import org.mericoztiryaki.domain.exception.PriceApiException;
+import org.mericoztiryaki.domain.model.CacheStats;
 import org.mericoztiryaki.domain.model.Instrument;
 import org.mericoztiryaki.domain.model.Price;
 import org.mericoztiryaki.domain.model.Quotes;
@@ -10,32 +12,164 @@ import org.mericoztiryaki.domain.model.constant.Currency;
 import org.mericoztiryaki.domain.model.constant.InstrumentType;
 import org.mericoztiryaki.domain.port.PriceSource;
 import org.mericoztiryaki.domain.service.IPriceService;
+import org.mericoztiryaki.domain.util.BoundedCache;
 import org.mericoztiryaki.domain.util.Environment;
 import org.mericoztiryaki.domain.util.ExecutorManager;
+import org.mericoztiryaki.domain.util.PipelineMetrics;
 import org.mericoztiryaki.domain.util.QuotesUtil;
 
-import java.io.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Serializable;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Log4j2
 public class PriceService implements IPriceService {
 
+    private static final int PRICE_WINDOW_MARGIN = 60;
+
+    private static final int MAX_PREFETCH_WINDOW_DAYS = 365;
+
     private final PriceSource priceSource;
     private final PriceCache cache;
+    private final ExecutorService fetchExecutor;
 
     public PriceService(PriceSource priceSource) {
+        this(priceSource, Environment.PRICE_CACHE_PATH);
+    }
+
+    public PriceService(PriceSource priceSource, String cacheFilePath) {
+        this(priceSource, new PriceStore(cacheFilePath));
+    }
+
+    // The store is opened by the cache
+    PriceService(PriceSource priceSource, PriceStore store) {
         this.priceSource = priceSource;
-        this.cache = new PriceCache(Environment.PRICE_CACHE_PATH);
+        this.cache = new PriceCache(store);
+        this.fetchExecutor = Executors.newFixedThreadPool(Environment.PRICE_FETCH_PARALLELISM);
+        ExecutorManager.assign(this.fetchExecutor);
+    }
+
+    @Override
+    public void prefetchPrices(Map<Instrument, Set<LocalDate>> requiredDates) throws PriceApiException {
+        List<Pair<Instrument, Pair<LocalDate, LocalDate>>> windows = new ArrayList<>();
+        requiredDates.forEach((instrument, dates) -> {
+            PriceCoverage coverage = cache.getCoverage(instrument);
+            List<LocalDate> missingDates = dates.stream()
+                    .filter(d -> !cache.containsKey(new CacheKey(instrument, d)))
+                    .filter(d -> !coverage.isNonTradingDay(d))
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            mergeWindows(missingDates).forEach(w ->
+                    getMissingRanges(coverage, w).forEach(r -> windows.add(Pair.of(instrument, r))));
+        });
+
+        if (windows.isEmpty()) {
+            return;
+        }
+
+        log.info("Prefetching {} price windows", windows.size());
+
+        List<Future<Map<LocalDate, Quotes>>> futures = windows.stream()
+                .map(w -> fetchExecutor.submit(PipelineMetrics.propagate(
+                        () -> fetchPrices(w.getLeft(), w.getRight().getLeft(), w.getRight().getRight()))))
+                .collect(Collectors.toList());
+
+        Map<CacheKey, Quotes> prices = new HashMap<>();
+        List<Map<LocalDate, Quotes>> responses = new ArrayList<>(windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            Instrument instrument = windows.get(i).getLeft();
+            try {
+                Map<LocalDate, Quotes> response = futures.get(i).get();
+                response.forEach((d, q) -> prices.put(new CacheKey(instrument, d), q));
+                responses.add(response);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof PriceApiException) {
+                    throw (PriceApiException) e.getCause();
+                }
+                throw new PriceApiException(e.getCause(), instrument.getInstrumentType(), instrument.getSymbol(),
+                        windows.get(i).getRight().getLeft(), windows.get(i).getRight().getRight());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PriceApiException(e, instrument.getInstrumentType(), instrument.getSymbol(),
+                        windows.get(i).getRight().getLeft(), windows.get(i).getRight().getRight());
+            }
+        }
+
+        cache.putAll(prices);
+
+        // Covered only after the prices are in the cache
+        for (int i = 0; i < windows.size(); i++) {
+            Pair<LocalDate, LocalDate> window = windows.get(i).getRight();
+            cache.addCoverage(windows.get(i).getLeft(), window.getLeft(), window.getRight(), responses.get(i).keySet());
+        }
+    }
+
+    // Only the parts of a window which are not asked before are fetched. If all of it is covered, the missing prices
+    // were dropped from the cache without being saved, so the whole window is fetched again.
+    private static List<Pair<LocalDate, LocalDate>> getMissingRanges(PriceCoverage coverage, Pair<LocalDate, LocalDate> window) {
+        List<Pair<LocalDate, LocalDate>> missingRanges = coverage.getMissingRanges(window.getLeft(), window.getRight());
+        return missingRanges.isEmpty() ? Collections.singletonList(window) : missingRanges;
+    }
+
+    // Converts sorted dates to +-PRICE_WINDOW_MARGIN windows, merges the overlapping ones and splits the results
+    // into chunks that a single api call can answer.
+    private List<Pair<LocalDate, LocalDate>> mergeWindows(List<LocalDate> sortedDates) {
+        List<Pair<LocalDate, LocalDate>> merged = new ArrayList<>();
+
+        LocalDate start = null;
+        LocalDate end = null;
+        for (LocalDate date: sortedDates) {
+            LocalDate windowStart = date.minusDays(PRICE_WINDOW_MARGIN);
+            LocalDate windowEnd = date.plusDays(PRICE_WINDOW_MARGIN);
+
+            if (start != null && !windowStart.isAfter(end.plusDays(1))
+                    && !windowEnd.isAfter(start.plusDays(MAX_PREFETCH_WINDOW_DAYS))) {
+                end = windowEnd;
+                continue;
+            }
+
+            if (start != null) {
+                merged.add(Pair.of(start, end));
+            }
+            start = windowStart;
+            end = windowEnd;
+        }
+
+        if (start != null) {
+            merged.add(Pair.of(start, end));
+        }
+
+        return merged;
     }
 
     @Override
@@ -43,68 +177,124 @@ public class PriceService implements IPriceService {
         CacheKey cacheKey = new CacheKey(instrument, date);
 
         // Return directly from cache
-        if (cache.containsKey(cacheKey)) {
-            return cache.get(cacheKey);
+        Quotes cached = cache.get(cacheKey);
+        if (cached != null) {
+            PipelineMetrics.recordCacheHit();
+            return cached;
+        }
+        PipelineMetrics.recordCacheMiss();
+
+        PriceCoverage coverage = cache.getCoverage(instrument);
+        if (coverage.isNonTradingDay(date)) {
+            return null;
         }
 
+        // Uncovered part of the +-PRICE_WINDOW_MARGIN window around the date
+        Pair<LocalDate, LocalDate> window = Pair.of(date.minusDays(PRICE_WINDOW_MARGIN), date.plusDays(PRICE_WINDOW_MARGIN));
+        window = getMissingRanges(coverage, window).stream()
+                .filter(r -> !date.isBefore(r.getLeft()) && !date.isAfter(r.getRight()))
+                .findFirst()
+                .orElse(window);
+
         log.info("Price cache MISS: " + instrument + " " + date);
-        Map<LocalDate, Quotes> response = fetchPrices(instrument, date);
+        long start = System.nanoTime();
+        Map<LocalDate, Quotes> response = fetchPrices(instrument, window.getLeft(), window.getRight());
+        cache.recordLoad(System.nanoTime() - start);
 
         // Put prices to cache
         cache.putAll(response.keySet()
                 .stream()
                 .collect(Collectors.toMap((d) -> new CacheKey(instrument, d), (d) -> response.get(d))));
+        cache.addCoverage(instrument, window.getLeft(), window.getRight(), response.keySet());
 
         return response.get(date);
     }
 
-    private Map<LocalDate, Quotes> fetchPrices(Instrument instrument, LocalDate date) throws PriceApiException {
-        List<Price> response = priceSource.getPriceWindow(instrument.getInstrumentType(), instrument.getSymbol(),
-                date.minusDays(60), date.plusDays(60));
+    private Map<LocalDate, Quotes> fetchPrices(Instrument instrument, LocalDate start, LocalDate end) throws PriceApiException {
+        long startNanos = System.nanoTime();
+        List<Price> response;
+        try {
+            response = priceSource.getPriceWindow(instrument.getInstrumentType(), instrument.getSymbol(), start, end);
+        } finally {
+            PipelineMetrics.recordApiCall(System.nanoTime() - startNanos);
+        }
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
         Map<LocalDate, Quotes> prices = new HashMap<>();
-
-        response.forEach(r -> {
-            Quotes price = new Quotes();
-
-            r.getQuotes()
-                    .keySet()
-                    .forEach(k -> {
-                        Currency c = Currency.valueOf(k);
-                        price.getValue().computeIfAbsent(c, (_c) -> new BigDecimal(r.getQuotes().get(k)));
-                    });
-
-            prices.put(LocalDate.parse(r.getDay(), formatter), price);
-        });
+        response.forEach(r -> prices.put(r.getDay(), r.getQuotes()));
 
         return prices;
     }
 
+    @Override
+    public PriceSeries getPriceSeries(Instrument instrument, Collection<LocalDate> dates) throws PriceApiException {
+        return new PriceSeries(this, instrument, dates);
+    }
+
     @Override
     public Quotes calculateExchangeRates(LocalDate date, BigDecimal price, Currency source) throws PriceApiException {
         Quotes exchangeRates = getPrice(new Instrument(InstrumentType.CURRENCY, source.toString()), date);
         return QuotesUtil.multiply(exchangeRates, price);
     }
 
+    @Override
+    public long getPriceVersion(Collection<Instrument> instruments) {
+        return cache.getVersion(instruments);
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    // Recently used prices are kept in a size bounded memory tier in front of the price file, evicted ones are read
+    // from the file again. Prices are written behind: new prices are queued and a single flusher appends them to the
+    // store in batches, either when PRICE_CACHE_FLUSH_BATCH_SIZE prices are waiting or PRICE_CACHE_FLUSH_INTERVAL_MILLIS
+    // after the first one is queued. Pending flushes still run when the executors are shut down. Price coverages are
+    // saved next to the price file by the same flusher, they are dropped if the price file is recreated.
     public class PriceCache {
 
+        private static final int COVERAGE_MAGIC = 0x50415443;
+        // Version 1 files may mark recent days without a price as non-trading days
+        private static final int COVERAGE_VERSION = 2;
+
         private final String cacheFilePath;
-        private final ThreadPoolExecutor executor;
+        private final String coverageFilePath;
+        private final ScheduledExecutorService flusher;
 
-        private ConcurrentMap<CacheKey, Quotes> internalCache;
+        private final BoundedCache<CacheKey, Quotes> internalCache;
+        private PriceStore store;
+
+        // Prices waiting to be flushed, they are served from here if they are evicted from memory before
+        private final ConcurrentMap<CacheKey, Quotes> pendingPrices = new ConcurrentHashMap<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final ConcurrentMap<Instrument, AtomicInteger> pendingCounts = new ConcurrentHashMap<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final AtomicBoolean earlyFlushRequested = new AtomicBoolean();
+        private int failedFlushCount;
+
+        // Guards the stored and pending counts the versions are calculated from
+        private final Object versionLock = new Object();
+
+        private final ConcurrentMap<Instrument, PriceCoverage> coverages = new ConcurrentHashMap<>();
+        private final AtomicBoolean coverageChanged = new AtomicBoolean();
 
         public PriceCache(String cacheFilePath) {
-            this.cacheFilePath = cacheFilePath;
-            this.executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
-            ExecutorManager.assign(this.executor);
+            this(new PriceStore(cacheFilePath));
+        }
 
-            this.internalCache = new ConcurrentHashMap<>();
-            this.initialize();
+        PriceCache(PriceStore priceStore) {
+            this.cacheFilePath = priceStore.getFilePath();
+            this.coverageFilePath = cacheFilePath + ".coverage";
+            this.flusher = Executors.newSingleThreadScheduledExecutor();
+            ExecutorManager.assign(this.flusher);
+
+            this.internalCache = new BoundedCache<>(Environment.PRICE_CACHE_MAX_ENTRIES);
+            this.initialize(priceStore);
         }
 
         public boolean containsKey(CacheKey key) {
-            return internalCache.containsKey(key);
+            return internalCache.containsKey(key) || pendingPrices.containsKey(key)
+                    || (store != null && store.contains(key.getInstrument(), key.getDate()));
         }
 
         public void putAll(Map<CacheKey, Quotes> values) {
@@ -114,52 +304,229 @@ public class PriceService implements IPriceService {
 
             internalCache.putAll(values);
 
-            // Save these values to file (async)
-            Map<CacheKey, Quotes> pricesToCache =
-                    internalCache.keySet().stream()
-                            .filter(k -> !k.getDate().isEqual(LocalDate.now()))
-                            .collect(Collectors.toMap((k) -> k, (k) -> internalCache.get(k)));
-
-            persist(pricesToCache);
+            // Today's prices may still change, they are not persisted
+            LocalDate today = LocalDate.now();
+            values.forEach((k, v) -> {
+                if (!k.getDate().isEqual(today)) {
+                    persist(k, v);
+                }
+            });
         }
 
         public Quotes get(CacheKey key) {
-            return internalCache.get(key);
+            Quotes quotes = internalCache.get(key);
+            if (quotes == null) {
+                quotes = pendingPrices.get(key);
+            }
+            if (quotes == null && store != null) {
+                long start = System.nanoTime();
+                quotes = store.get(key.getInstrument(), key.getDate());
+                if (quotes != null) {
+                    recordLoad(System.nanoTime() - start);
+                    internalCache.putIfAbsent(key, quotes);
+                }
+            }
+            return quotes;
+        }
+
+        public void recordLoad(long nanos) {
+            internalCache.recordLoad(nanos);
+        }
+
+        public CacheStats getStats() {
+            return internalCache.getStats();
+        }
+
+        // Stored and queued price counts of the instruments only grow, so their sum changes whenever one of their prices
+        // is added. Queued prices are counted as well, so the version doesn't change when they are flushed.
+        public long getVersion(Collection<Instrument> instruments) {
+            if (store == null) {
+                return 0;
+            }
+            synchronized (versionLock) {
+                long version = store.getStoreId() * 31;
+                for (Instrument instrument: instruments) {
+                    AtomicInteger pending = pendingCounts.get(instrument);
+                    version += store.getPriceCount(instrument) + (pending != null ? pending.get() : 0);
+                }
+                return version != 0 ? version : 1;
+            }
+        }
+
+        public PriceCoverage getCoverage(Instrument instrument) {
+            return coverages.computeIfAbsent(instrument, (i) -> new PriceCoverage());
         }
 
-        // Initializes cache from starting point by reading file.
-        public void initialize() {
+        // Records a fetched range, must be called after its prices are put to the cache
+        public void addCoverage(Instrument instrument, LocalDate start, LocalDate end, Set<LocalDate> pricedDays) {
+            getCoverage(instrument).addRange(start, end, pricedDays, Environment.PRICE_RECENT_DAYS,
+                    TimeUnit.HOURS.toMillis(Environment.PRICE_EMPTY_RANGE_TTL_HOURS));
+
+            if (store != null) {
+                coverageChanged.set(true);
+                scheduleFlush();
+            }
+        }
+
+        // Opens the price file, prices are read from it on demand
+        public void initialize(PriceStore priceStore) {
             log.info("Using cache file: {}", this.cacheFilePath);
-            File cacheFile = new File(this.cacheFilePath);
 
-            if (!cacheFile.exists() || cacheFile.isDirectory()){
-                log.warn("Cache does not exists, creating new one");
+            try {
+                priceStore.open();
+                this.store = priceStore;
+            } catch (Exception e) {
+                log.error("Cache can't read from file, prices will not be saved", e);
+                return;
+            }
+
+            loadCoverages();
+        }
+
+        private void loadCoverages() {
+            File file = new File(coverageFilePath);
+            if (!file.exists()) {
                 return;
             }
 
-            try (FileInputStream fi = new FileInputStream(this.cacheFilePath);
-                 ObjectInputStream oi = new ObjectInputStream(fi)){
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != COVERAGE_MAGIC || in.readInt() != COVERAGE_VERSION
+                        || in.readLong() != store.getStoreId()) {
+                    log.info("Price coverage file is outdated or belongs to another price file, it is ignored");
+                    return;
+                }
 
-                internalCache = new ConcurrentHashMap<>((HashMap<CacheKey, Quotes>) oi.readObject());
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Instrument instrument = new Instrument(InstrumentType.valueOf(in.readUTF()), in.readUTF());
+                    coverages.put(instrument, PriceCoverage.read(in));
+                }
+                log.info("Price coverage loaded. Instruments: {}", count);
             } catch (Exception e) {
-                log.error("Cache can't read from file", e);
-                e.printStackTrace();
+                log.warn("Price coverage can't read, prices will be asked again", e);
+                coverages.clear();
+            }
+        }
+
+        // Written to a temp file and moved, so a crash never leaves a partial file
+        private void saveCoverages() {
+            Path path = Paths.get(coverageFilePath);
+            Path tempPath = Paths.get(coverageFilePath + ".tmp");
+
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                    out.writeInt(COVERAGE_MAGIC);
+                    out.writeInt(COVERAGE_VERSION);
+                    out.writeLong(store.getStoreId());
+
+                    Map<Instrument, PriceCoverage> snapshot = new HashMap<>(coverages);
+                    out.writeInt(snapshot.size());
+                    for (Map.Entry<Instrument, PriceCoverage> e: snapshot.entrySet()) {
+                        out.writeUTF(e.getKey().getInstrumentType().name());
+                        out.writeUTF(e.getKey().getSymbol());
+                        e.getValue().write(out);
+                    }
+                }
+
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.error("Price coverage can't saved", e);
+            }
+        }
+
+        // Queues the price to be appended to file in order to initialize it from this point
+        public void persist(CacheKey key, Quotes quotes) {
+            if (store == null || store.contains(key.getInstrument(), key.getDate())) {
+                return;
+            }
+
+            // Counted after it is queued, so the version is never ahead of the served prices
+            boolean queued = pendingPrices.put(key, quotes) == null;
+            if (queued) {
+                pendingCountOf(key.getInstrument()).incrementAndGet();
+            }
+
+            // A full batch is flushed at once, unless the last flush failed and a retry is already scheduled
+            if (queued && pendingCount.incrementAndGet() >= Environment.PRICE_CACHE_FLUSH_BATCH_SIZE
+                    && earlyFlushRequested.compareAndSet(false, true)) {
+                flusher.execute(this::flush);
+            } else {
+                scheduleFlush();
+            }
+        }
+
+        private AtomicInteger pendingCountOf(Instrument instrument) {
+            return pendingCounts.computeIfAbsent(instrument, (i) -> new AtomicInteger());
+        }
+
+        private void scheduleFlush() {
+            scheduleFlush(Environment.PRICE_CACHE_FLUSH_INTERVAL_MILLIS);
+        }
+
+        private void scheduleFlush(long delayMillis) {
+            if (flushScheduled.compareAndSet(false, true)) {
+                flusher.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
             }
         }
 
-        // Saves cache to file in order to initialize it from this point
-        public void persist(Map<CacheKey, Quotes> snapshot) {
-            executor.submit(() -> {
-                try (FileOutputStream f = new FileOutputStream(cacheFilePath);
-                     ObjectOutputStream o = new ObjectOutputStream(f)) {
+        // Appends the queued prices to file, runs on the flusher thread only
+        private void flush() {
+            // Prices queued after this point schedule another flush
+            flushScheduled.set(false);
+
+            Map<CacheKey, Quotes> flushed = new HashMap<>(pendingPrices);
+            if (!flushed.isEmpty()) {
+                Map<Instrument, Map<LocalDate, Quotes>> prices = new HashMap<>();
+                flushed.forEach((k, v) -> prices.computeIfAbsent(k.getInstrument(), (i) -> new HashMap<>()).put(k.getDate(), v));
+
+                boolean saved = false;
+                synchronized (versionLock) {
+                    try {
+                        int count = store.append(prices);
+                        log.debug("Prices saved. Count: {}", count);
+                        saved = true;
+                    } catch (IOException e) {
+                        failedFlushCount++;
+                        if (failedFlushCount == 1) {
+                            log.error("Cache file can't saved, prices are kept to retry", e);
+                        } else {
+                            log.error("Cache file can't saved {} times in a row, pending prices: {}. {}",
+                                    failedFlushCount, pendingCount.get(), e.toString());
+                        }
+                    }
+
+                    // Removed only after they are readable from the store, the others are retried
+                    flushed.forEach((k, v) -> {
+                        if (store.contains(k.getInstrument(), k.getDate()) && pendingPrices.remove(k, v)) {
+                            pendingCount.decrementAndGet();
+                            pendingCountOf(k.getInstrument()).decrementAndGet();
+                        }
+                    });
+                }
 
-                    o.writeObject(snapshot);
-                    log.debug("Prices saved. Count: {}", snapshot.size());
-                } catch (IOException e) {
-                    log.error("Cache file can't saved", e);
-                    e.printStackTrace();
+                if (!saved) {
+                    // Retries back off up to a minute, early flushes wait for them
+                    scheduleFlush(Math.min(Environment.PRICE_CACHE_FLUSH_INTERVAL_MILLIS << Math.min(failedFlushCount, 16),
+                            TimeUnit.MINUTES.toMillis(1)));
+                    return;
                 }
-            });
+                if (failedFlushCount > 0) {
+                    log.info("Cache file saved again after {} failures", failedFlushCount);
+                    failedFlushCount = 0;
+                }
+            }
+
+            // A batch filled while flushing is flushed at once
+            earlyFlushRequested.set(false);
+            if (pendingCount.get() >= Environment.PRICE_CACHE_FLUSH_BATCH_SIZE
+                    && earlyFlushRequested.compareAndSet(false, true)) {
+                flusher.execute(this::flush);
+            }
+
+            // Coverage is saved after the prices it refers to
+            if (coverageChanged.getAndSet(false)) {
+                saveCoverages();
+            }
         }
     }
 
@@ -0,0 +1,542 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only binary price file.
+//
+// Layout: a header (magic, version, currency count, store id) followed by records. An instrument record assigns an id
+// to an (instrument type, symbol) pair, a price record holds one day of an instrument with a fixed-width slot
+// (scale + unscaled long) for every currency. Existing content is memory mapped on open and only an offset index is
+// built, prices are decoded when they are asked for. Stored prices never change and records are only appended, so
+// the random store id and the price count identify the content of a store. Offsets are longs, content beyond the
+// mappable size is read from the channel.
+//
+// Opening and appending are serialized, lookups don't lock. A record is indexed only after it is written, so a
+// lookup never finds a record which can't be read yet.
+//
+// A file in the serialized format of the old price cache is imported once and kept as <path>.legacy, any other
+// unknown file is moved aside instead of being overwritten.
+@Log4j2
+public class PriceStore {
+
+    private static final int MAGIC = 0x50415053;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 20;
+
+    private static final byte INSTRUMENT_RECORD = 1;
+    private static final byte PRICE_RECORD = 2;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final int PRICE_RECORD_SIZE = 1 + 4 + 4 + 1 + CURRENCIES.length * 9;
+
+    // Bytes read at once while the index is built
+    static final int SCAN_WINDOW_SIZE = 1 << 20;
+
+    private final String filePath;
+
+    private final Map<Instrument, Integer> instrumentIds = new ConcurrentHashMap<>();
+    private final Map<Integer, DayIndex> dayIndexes = new ConcurrentHashMap<>();
+
+    private volatile FileChannel channel;
+    private volatile MappedByteBuffer mappedBuffer;
+    private long writePosition;
+    private volatile long storeId;
+    private volatile long priceCount;
+
+    public PriceStore(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public synchronized void open() throws IOException {
+        File file = new File(filePath);
+        if (file.isDirectory()) {
+            throw new IOException("Price store path is a directory: " + filePath);
+        }
+        if (file.getAbsoluteFile().getParentFile() != null) {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        }
+
+        Map<Instrument, Map<LocalDate, Quotes>> legacyPrices = null;
+        if (file.length() > 0 && !hasHeader(file.toPath())) {
+            legacyPrices = LegacyPriceCache.read(file);
+            String suffix = legacyPrices != null ? ".legacy" : ".unknown";
+            Path movedPath = moveAside(file.toPath(), suffix);
+            log.warn("Price store has unknown format, it is moved to {} and a new one is created", movedPath);
+        }
+
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (channel.size() < HEADER_SIZE) {
+            log.warn("Price store does not exists, creating new one");
+            reset();
+            if (legacyPrices != null) {
+                log.info("Legacy price cache imported. Prices: {}", append(legacyPrices));
+            }
+            return;
+        }
+
+        this.mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+        this.storeId = mappedBuffer.getLong(12);
+        this.writePosition = buildIndex();
+        if (writePosition < channel.size()) {
+            log.warn("Price store has a partially written record, dropping {} bytes", channel.size() - writePosition);
+            channel.truncate(writePosition);
+            this.mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(writePosition, Integer.MAX_VALUE));
+        }
+
+        log.info("Price store opened. Instruments: {}, size: {} bytes", instrumentIds.size(), writePosition);
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getStoreId() {
+        return storeId;
+    }
+
+    public long getPriceCount() {
+        return priceCount;
+    }
+
+    // Only grows while the store is not recreated, since prices are only appended
+    public long getPriceCount(Instrument instrument) {
+        DayIndex dayIndex = dayIndexOf(instrument);
+        return dayIndex != null ? dayIndex.getCount() : 0;
+    }
+
+    public boolean contains(Instrument instrument, LocalDate date) {
+        return offsetOf(instrument, date) >= 0;
+    }
+
+    public Quotes get(Instrument instrument, LocalDate date) {
+        long offset = offsetOf(instrument, date);
+        if (offset < 0) {
+            return null;
+        }
+
+        MappedByteBuffer mappedBuffer = this.mappedBuffer;
+        if (mappedBuffer != null && offset + PRICE_RECORD_SIZE <= mappedBuffer.limit()) {
+            return readQuotes(mappedBuffer, (int) offset + 1 + 4 + 4);
+        }
+
+        // Records appended after opening or beyond the mapped size are read from the channel
+        try {
+            ByteBuffer record = ByteBuffer.allocate(PRICE_RECORD_SIZE);
+            while (record.hasRemaining()) {
+                if (channel.read(record, offset + record.position()) < 0) {
+                    return null;
+                }
+            }
+            return readQuotes(record, 1 + 4 + 4);
+        } catch (IOException e) {
+            log.error("Price can't read from store", e);
+            return null;
+        }
+    }
+
+    // Appends the prices which are not stored yet, returns the appended count
+    public synchronized int append(Map<Instrument, Map<LocalDate, Quotes>> prices) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        Map<Instrument, Integer> newInstrumentIds = new HashMap<>();
+        List<Runnable> indexUpdates = new ArrayList<>();
+        long position = writePosition;
+        int count = 0;
+
+        for (Map.Entry<Instrument, Map<LocalDate, Quotes>> e: prices.entrySet()) {
+            Instrument instrument = e.getKey();
+            Integer id = instrumentIds.get(instrument);
+            DayIndex dayIndex = id != null ? dayIndexes.get(id) : null;
+
+            if (id == null) {
+                id = instrumentIds.size() + newInstrumentIds.size();
+                ByteBuffer record = encodeInstrument(id, instrument);
+                buffers.add(record);
+                position += record.remaining();
+
+                newInstrumentIds.put(instrument, id);
+            }
+
+            int instrumentId = id;
+            for (Map.Entry<LocalDate, Quotes> p: e.getValue().entrySet()) {
+                long epochDay = p.getKey().toEpochDay();
+                if (dayIndex != null && dayIndex.get(epochDay) >= 0) {
+                    continue;
+                }
+
+                ByteBuffer record = encodePrice(instrumentId, epochDay, p.getValue());
+                buffers.add(record);
+
+                long offset = position;
+                indexUpdates.add(() -> dayIndexes.get(instrumentId).put(epochDay, offset));
+                position += record.remaining();
+                count++;
+            }
+        }
+
+        if (buffers.isEmpty()) {
+            return 0;
+        }
+
+        channel.position(writePosition);
+        for (ByteBuffer buffer: buffers) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        // Index is updated only after the records are written, day indexes before the ids which lead to them
+        writePosition = position;
+        newInstrumentIds.forEach((instrument, id) -> {
+            dayIndexes.put(id, new DayIndex());
+            instrumentIds.put(instrument, id);
+        });
+        indexUpdates.forEach(Runnable::run);
+        priceCount += count;
+        return count;
+    }
+
+    public synchronized void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.error("Price store can't closed", e);
+        }
+    }
+
+    private long offsetOf(Instrument instrument, LocalDate date) {
+        DayIndex dayIndex = dayIndexOf(instrument);
+        return dayIndex != null ? dayIndex.get(date.toEpochDay()) : -1;
+    }
+
+    private DayIndex dayIndexOf(Instrument instrument) {
+        Integer id = instrumentIds.get(instrument);
+        return id != null ? dayIndexes.get(id) : null;
+    }
+
+    private void reset() throws IOException {
+        channel.truncate(0);
+
+        long newStoreId = 0;
+        while (newStoreId == 0) {
+            newStoreId = new SecureRandom().nextLong();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(CURRENCIES.length).putLong(newStoreId).flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        this.mappedBuffer = null;
+        this.writePosition = HEADER_SIZE;
+        this.storeId = newStoreId;
+        this.priceCount = 0;
+        this.instrumentIds.clear();
+        this.dayIndexes.clear();
+    }
+
+    // Scans the records, returns the position after the last complete record
+    private long buildIndex() throws IOException {
+        RecordScanner scanner = new RecordScanner(channel);
+        long position = HEADER_SIZE;
+
+        while (scanner.require(position, 1)) {
+            byte tag = scanner.getByte(position);
+
+            if (tag == INSTRUMENT_RECORD) {
+                if (!scanner.require(position, 1 + 4 + 2)) {
+                    break;
+                }
+                int id = scanner.getInt(position + 1);
+                int typeLength = scanner.getShort(position + 5);
+                if (typeLength < 0 || !scanner.require(position + 7, typeLength + 2)) {
+                    break;
+                }
+                String type = scanner.getString(position + 7, typeLength);
+                int symbolLength = scanner.getShort(position + 7 + typeLength);
+                if (symbolLength < 0 || !scanner.require(position + 9 + typeLength, symbolLength)) {
+                    break;
+                }
+                String symbol = scanner.getString(position + 9 + typeLength, symbolLength);
+
+                InstrumentType instrumentType;
+                try {
+                    instrumentType = InstrumentType.valueOf(type);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Price store has unknown instrument type: {}", type);
+                    break;
+                }
+
+                dayIndexes.put(id, new DayIndex());
+                instrumentIds.put(new Instrument(instrumentType, symbol), id);
+                position += 9 + typeLength + symbolLength;
+            } else if (tag == PRICE_RECORD) {
+                if (!scanner.require(position, PRICE_RECORD_SIZE)) {
+                    break;
+                }
+                int id = scanner.getInt(position + 1);
+                int epochDay = scanner.getInt(position + 5);
+                DayIndex dayIndex = dayIndexes.get(id);
+                if (dayIndex == null) {
+                    break;
+                }
+                dayIndex.put(epochDay, position);
+                priceCount++;
+                position += PRICE_RECORD_SIZE;
+            } else {
+                break;
+            }
+        }
+
+        return position;
+    }
+
+    private static boolean hasHeader(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (fileChannel.read(header) < 0) {
+                    return false;
+                }
+            }
+            header.flip();
+            return header.getInt() == MAGIC && header.getInt() == VERSION && header.getInt() == CURRENCIES.length;
+        }
+    }
+
+    // Moves the file to the first free <path><suffix>[.n]
+    private static Path moveAside(Path path, String suffix) throws IOException {
+        Path target = Paths.get(path + suffix);
+        for (int i = 1; Files.exists(target); i++) {
+            target = Paths.get(path + suffix + "." + i);
+        }
+        return Files.move(path, target);
+    }
+
+    private static Quotes readQuotes(ByteBuffer buffer, int position) {
+        byte mask = buffer.get(position);
+        Quotes quotes = new Quotes();
+
+        for (int i = 0; i < CURRENCIES.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                int slot = position + 1 + i * 9;
+                quotes.set(CURRENCIES[i],
+                        BigDecimal.valueOf(buffer.getLong(slot + 1), buffer.get(slot)));
+            }
+        }
+
+        return quotes;
+    }
+
+    private static ByteBuffer encodeInstrument(int id, Instrument instrument) {
+        byte[] type = instrument.getInstrumentType().name().getBytes(StandardCharsets.UTF_8);
+        byte[] symbol = instrument.getSymbol().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 2 + type.length + 2 + symbol.length);
+        buffer.put(INSTRUMENT_RECORD).putInt(id)
+                .putShort((short) type.length).put(type)
+                .putShort((short) symbol.length).put(symbol);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer encodePrice(int id, long epochDay, Quotes quotes) {
+        ByteBuffer buffer = ByteBuffer.allocate(PRICE_RECORD_SIZE);
+        buffer.put(PRICE_RECORD).putInt(id).putInt((int) epochDay);
+
+        byte mask = 0;
+        for (int i = 0; i < CURRENCIES.length; i++) {
+            if (quotes.get(CURRENCIES[i]) != null) {
+                mask |= 1 << i;
+            }
+        }
+        buffer.put(mask);
+
+        for (Currency currency: CURRENCIES) {
+            BigDecimal value = quotes.get(currency);
+            if (value == null) {
+                buffer.put((byte) 0).putLong(0);
+            } else {
+                value = toFixedWidth(value);
+                buffer.put((byte) value.scale()).putLong(value.unscaledValue().longValue());
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    // Reduces precision until the value fits a byte scale and a long unscaled value
+    private static BigDecimal toFixedWidth(BigDecimal value) {
+        if (value.scale() > Byte.MAX_VALUE) {
+            value = value.setScale(Byte.MAX_VALUE, RoundingMode.HALF_UP);
+        }
+        if (value.scale() < Byte.MIN_VALUE) {
+            value = value.setScale(0, RoundingMode.HALF_UP);
+        }
+
+        BigInteger unscaled = value.unscaledValue();
+        while (unscaled.bitLength() > 63) {
+            value = value.setScale(value.scale() - 1, RoundingMode.HALF_UP);
+            unscaled = value.unscaledValue();
+        }
+        return value;
+    }
+
+    // Record offsets of an instrument, indexed by epoch day. Only the appending thread writes, grown arrays and written
+    // offsets are published through the volatile slots, so lookups read them without locking.
+    private static class DayIndex {
+
+        private volatile Slots slots = new Slots(0, new long[0]);
+        private volatile int count;
+
+        long get(long epochDay) {
+            Slots current = slots;
+            long i = epochDay - current.firstDay;
+            if (i < 0 || i >= current.offsets.length) {
+                return -1;
+            }
+            return current.offsets[(int) i];
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        void put(long epochDay, long offset) {
+            Slots current = slots;
+            long firstDay = current.firstDay;
+            long[] offsets = current.offsets;
+
+            if (offsets.length == 0) {
+                firstDay = epochDay;
+                offsets = new long[64];
+                Arrays.fill(offsets, -1);
+            }
+
+            if (epochDay < firstDay) {
+                int shift = (int) (firstDay - epochDay) + 64;
+                long[] grown = new long[offsets.length + shift];
+                Arrays.fill(grown, 0, shift, -1);
+                System.arraycopy(offsets, 0, grown, shift, offsets.length);
+                offsets = grown;
+                firstDay -= shift;
+            } else if (epochDay - firstDay >= offsets.length) {
+                int length = Math.max(offsets.length * 2, (int) (epochDay - firstDay) + 64);
+                long[] grown = Arrays.copyOf(offsets, length);
+                Arrays.fill(grown, offsets.length, length, -1);
+                offsets = grown;
+            }
+
+            if (offsets[(int) (epochDay - firstDay)] < 0) {
+                count++;
+            }
+            offsets[(int) (epochDay - firstDay)] = offset;
+
+            // Written again even if the array is the same, so the offset is visible to the lookups after this point
+            slots = offsets == current.offsets ? current : new Slots(firstDay, offsets);
+        }
+    }
+
+    private static class Slots {
+
+        private final long firstDay;
+        private final long[] offsets;
+
+        Slots(long firstDay, long[] offsets) {
+            this.firstDay = firstDay;
+            this.offsets = offsets;
+        }
+    }
+
+    // Sequential reads of the records through a window of the file
+    private static class RecordScanner {
+
+        private final FileChannel channel;
+        private final long size;
+        private ByteBuffer window = ByteBuffer.allocate(SCAN_WINDOW_SIZE);
+        private long windowStart;
+
+        RecordScanner(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            window.limit(0);
+        }
+
+        // Makes the bytes [position, position + length) readable, false if the file ends before
+        boolean require(long position, int length) throws IOException {
+            if (position + length > size) {
+                return false;
+            }
+            if (position >= windowStart && position + length <= windowStart + window.limit()) {
+                return true;
+            }
+
+            if (length > window.capacity()) {
+                window = ByteBuffer.allocate(length);
+            }
+            window.clear();
+            window.limit((int) Math.min(window.capacity(), size - position));
+            windowStart = position;
+            while (window.hasRemaining()) {
+                if (channel.read(window, position + window.position()) < 0) {
+                    break;
+                }
+            }
+            window.flip();
+            return window.limit() >= length;
+        }
+
+        byte getByte(long position) {
+            return window.get((int) (position - windowStart));
+        }
+
+        short getShort(long position) {
+            return window.getShort((int) (position - windowStart));
+        }
+
+        int getInt(long position) {
+            return window.getInt((int) (position - windowStart));
+        }
+
+        String getString(long position, int length) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = getByte(position + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -4,9 +4,13 @@ import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.tuple.Pair;
 import org.mericoztiryaki.domain.exception.InvalidTransactionDefinitionException;
 import org.mericoztiryaki.domain.exception.PriceApiException;
+import org.mericoztiryaki.domain.exception.ReportGenerationException;
+import org.mericoztiryaki.domain.exception.ReportParametersException;
 import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.PreparedReport;
 import org.mericoztiryaki.domain.model.Quotes;
 import org.mericoztiryaki.domain.model.ReportParameters;
+import org.mericoztiryaki.domain.model.constant.Currency;
 import org.mericoztiryaki.domain.model.constant.InstrumentType;
 import org.mericoztiryaki.domain.model.constant.Period;
 import org.mericoztiryaki.domain.model.constant.PnlHistoryUnit;
@@ -15,10 +19,16 @@ import org.mericoztiryaki.domain.model.result.HistoricalAnalyzeResult;
 import org.mericoztiryaki.domain.model.result.InstrumentAnalyzeResult;
 import org.mericoztiryaki.domain.model.result.Report;
 import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.model.transaction.TransactionTimeline;
+import org.mericoztiryaki.domain.port.TransactionSource;
 import org.mericoztiryaki.domain.service.IPriceService;
 import org.mericoztiryaki.domain.service.IReportService;
 import org.mericoztiryaki.domain.service.ITransactionService;
 import org.mericoztiryaki.domain.util.BigDecimalUtil;
+import org.mericoztiryaki.domain.util.Environment;
+import org.mericoztiryaki.domain.util.ExecutorManager;
+import org.mericoztiryaki.domain.util.PipelineMetrics;
 import org.mericoztiryaki.domain.util.QuotesUtil;
 
 import java.text.MessageFormat;
@@ -26,36 +36,122 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.temporal.TemporalAdjusters;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RequiredArgsConstructor
 public class ReportService implements IReportService {
 
+    // Transaction definitions are read and converted in batches of this size
+    private static final int TRANSACTION_BATCH_SIZE = 10000;
+
+    // Instruments are merged in this order, so the results do not depend on the order tasks finish
+    private static final Comparator<Instrument> INSTRUMENT_ORDER =
+            Comparator.comparing(Instrument::getInstrumentType).thenComparing(Instrument::getSymbol);
+
+    // Conversion of the transactions only reads these prices
+    private static final List<Instrument> EXCHANGE_RATES = Arrays.stream(Currency.values())
+            .map(currency -> new Instrument(InstrumentType.CURRENCY, currency.toString()))
+            .collect(Collectors.toList());
+
     private final IPriceService priceService;
     private final ITransactionService transactionService;
 
+    private final TransactionSnapshotStore snapshotStore = new TransactionSnapshotStore(Environment.TRANSACTION_SNAPSHOT_PATH);
+
+    private final ReportStateStore stateStore = new ReportStateStore(Environment.REPORT_STATE_PATH);
+
+    private final ExecutorService executor = createExecutor();
+
     @Override
     public Report generateReport(ReportParameters reportParameters) {
+        PreparedReport preparedReport = prepareReport(reportParameters);
+        return generateReport(preparedReport, loadPrices(preparedReport.getPriceRequirements()));
+    }
+
+    @Override
+    public PreparedReport prepareReport(ReportParameters reportParameters) {
         List<ITransaction> transactions = extractTransactions(reportParameters);
+        Map<Instrument, TransactionTimeline> timelines = createTimelines(transactions);
+
+        return new PreparedReport(reportParameters, transactions, timelines, planPriceRequirements(timelines, reportParameters));
+    }
+
+    @Override
+    public Map<Instrument, PriceSeries> loadPrices(Map<Instrument, Set<LocalDate>> priceRequirements) {
+        return PipelineMetrics.measure("price load", () -> {
+            priceService.prefetchPrices(priceRequirements);
+            return mapByInstrument(priceRequirements.keySet(),
+                    instrument -> priceService.getPriceSeries(instrument, priceRequirements.get(instrument)));
+        });
+    }
 
-        AggregatedAnalyzeResult aggregatedResult = createAggregatedResult(transactions, reportParameters);
-        List<InstrumentAnalyzeResult> openPositions = createOpenPositionsTable(transactions, reportParameters);
+    @Override
+    public Report generateReport(PreparedReport preparedReport, Map<Instrument, PriceSeries> prices) {
+        ReportParameters reportParameters = preparedReport.getParameters();
+        List<ITransaction> transactions = preparedReport.getTransactions();
+        Map<Instrument, TransactionTimeline> timelines = preparedReport.getTimelines();
+
+        // Historical windows of the previous report are reused for instruments whose transactions were only appended
+        String identity = reportParameters.getTransactions().identity();
+        Map<Instrument, ReportStateStore.InstrumentState> previousStates = identity != null ?
+                stateStore.load(identity, this::getPriceVersion) : Collections.emptyMap();
+        Map<Instrument, ReportStateStore.InstrumentState> states = mapByInstrument(timelines.keySet(),
+                instrument -> stateStore.continueState(timelines.get(instrument), previousStates.get(instrument)));
+
+        AggregatedAnalyzeResult aggregatedResult = PipelineMetrics.measure("aggregated",
+                () -> createAggregatedResult(timelines, prices, reportParameters));
+        List<InstrumentAnalyzeResult> openPositions = PipelineMetrics.measure("open positions",
+                () -> createOpenPositionsTable(transactions, prices, reportParameters));
 
         Map<PnlHistoryUnit, List<HistoricalAnalyzeResult>> pnlHistory = reportParameters.getPnlHistoryUnits()
                 .stream()
                 .collect(
                         Collectors.toMap(
                                 (unit) -> unit,
-                                (unit) -> createHistoricalResult(transactions, reportParameters, unit, unit.getSize())
+                                (unit) -> PipelineMetrics.measure("historical " + unit, () ->
+                                        createHistoricalResult(timelines, prices, states, reportParameters, unit, unit.getSize()))
                         )
                 );
 
+        if (identity != null) {
+            // States of the filtered instruments are kept for the next reports. Versions are read after the analysis,
+            // since prices fetched during it are included in the results.
+            states.forEach((instrument, state) -> state.setPriceVersion(getPriceVersion(instrument)));
+            Map<Instrument, ReportStateStore.InstrumentState> savedStates = new HashMap<>(previousStates);
+            savedStates.putAll(states);
+            stateStore.save(identity, savedStates);
+        }
+
         return new Report(transactions, aggregatedResult, openPositions, pnlHistory);
     }
 
     private List<ITransaction> extractTransactions(ReportParameters reportParameters) throws InvalidTransactionDefinitionException {
-        return reportParameters.getTransactions()
-                .stream().map(def -> transactionService.buildTransactionObject(def))
+        TransactionSource source = reportParameters.getTransactions();
+        String fingerprint = source.fingerprint();
+
+        // Converted transactions of an unchanged source are reused
+        List<ITransaction> transactions = fingerprint != null ?
+                snapshotStore.load(fingerprint, priceService.getPriceVersion(EXCHANGE_RATES)) : null;
+        if (transactions == null) {
+            transactions = convertTransactions(source);
+            if (fingerprint != null && !transactions.isEmpty()) {
+                // Version after the conversion, which includes the exchange rates it fetched
+                snapshotStore.save(fingerprint, priceService.getPriceVersion(EXCHANGE_RATES), transactions);
+            }
+        }
+
+        if (transactions.isEmpty()) {
+            throw new ReportParametersException("Transactions must not be empty");
+        }
+
+        return transactions.stream()
                 .filter(t -> reportParameters.getFilteredInstrumentTypes() == null
                         || !reportParameters.getFilteredInstrumentTypes().contains(t.getInstrument().getInstrumentType()))
                 .filter(t -> reportParameters.getFilteredSymbols() == null
@@ -64,48 +160,153 @@ public class ReportService implements IReportService {
                 .collect(Collectors.toList());
     }
 
-    private List<InstrumentAnalyzeResult> createOpenPositionsTable(List<ITransaction> transactions, ReportParameters reportParameters) throws PriceApiException {
-        return transactionService.getOpenPositions(transactions)
-                .entrySet()
-                .stream()
-                .map(e -> {
-                    InstrumentAnalyzeResult instrumentAnalyzeResult = new InstrumentAnalyzeResult(e.getKey(), e.getValue());
-                    Analyzer walletAnalyzer = new Analyzer(priceService, instrumentAnalyzeResult.getTransactions(), reportParameters.getReportDate());
+    // Definitions are converted in batches while they are read, so they are never held together with the transactions
+    private List<ITransaction> convertTransactions(TransactionSource source) throws InvalidTransactionDefinitionException {
+        List<ITransaction> transactions = new ArrayList<>();
 
-                    instrumentAnalyzeResult.setTotalAmount(walletAnalyzer.getTotalAmount());
-                    instrumentAnalyzeResult.setTotalValue(walletAnalyzer.calculateTotalValue());
-                    instrumentAnalyzeResult.setUnitCost(walletAnalyzer.calculateUnitCost());
+        try (Stream<TransactionDefinition> definitions = source.stream()) {
+            Iterator<TransactionDefinition> iterator = definitions.iterator();
+            List<TransactionDefinition> batch = new ArrayList<>(TRANSACTION_BATCH_SIZE);
 
-                    if (!BigDecimalUtil.isZero(instrumentAnalyzeResult.getTotalAmount())) {
-                        instrumentAnalyzeResult.setPrice(priceService.getPrice(instrumentAnalyzeResult.getInstrument(), reportParameters.getReportDate()));
+            while (true) {
+                PipelineMetrics.measure("csv read", () -> {
+                    while (batch.size() < TRANSACTION_BATCH_SIZE && iterator.hasNext()) {
+                        batch.add(iterator.next());
                     }
+                });
+                if (batch.isEmpty()) {
+                    break;
+                }
 
-                    Map<Period, List<ITransaction>> dividedTransactions = transactionService.createTransactionSetsByPeriods(
-                            instrumentAnalyzeResult.getTransactions(), reportParameters.getPeriods(), reportParameters.getReportDate());
-                    for (Period period: reportParameters.getPeriods()) {
-                        List<ITransaction> transactionsOfPeriod = dividedTransactions.get(period);
-                        if (transactionsOfPeriod != null) {
-                            Analyzer periodAnalyzer = new Analyzer(priceService, transactionsOfPeriod,
-                                    reportParameters.getReportDate());
-
-                            instrumentAnalyzeResult.getPnlCalculation().put(period, periodAnalyzer.calculatePNL());
-                            instrumentAnalyzeResult.getRoiCalculation().put(period, periodAnalyzer.calculateROI());
-                        }
-                    }
-                    return instrumentAnalyzeResult;
-                })
-                .collect(Collectors.toList());
+                PipelineMetrics.measure("transaction build", () -> {
+                    transactions.addAll(transactionService.buildTransactionObjects(batch));
+                });
+                batch.clear();
+            }
+        }
+
+        return transactions;
     }
 
-    private AggregatedAnalyzeResult createAggregatedResult(List<ITransaction> transactions, ReportParameters reportParameters) throws PriceApiException {
-        AggregatedAnalyzeResult rootResult = new AggregatedAnalyzeResult("Total");
+    private long getPriceVersion(Instrument instrument) {
+        return priceService.getPriceVersion(Collections.singleton(instrument));
+    }
 
-        // Group by instrument
+    // Timelines are built once and shared by the tables below
+    private Map<Instrument, TransactionTimeline> createTimelines(List<ITransaction> transactions) {
         Map<Instrument, List<ITransaction>> groupedTransactions = transactions
                 .stream()
                 .collect(Collectors.groupingBy(ITransaction::getInstrument));
 
-        for (Instrument instrument: groupedTransactions.keySet()) {
+        return mapByInstrument(groupedTransactions.keySet(),
+                instrument -> transactionService.createTimeline(groupedTransactions.get(instrument)));
+    }
+
+    // Collects every (instrument, date) price lookup that the report tables below will make, so that they can be
+    // fetched together before the analysis starts.
+    private Map<Instrument, Set<LocalDate>> planPriceRequirements(Map<Instrument, TransactionTimeline> timelines, ReportParameters reportParameters) {
+        Set<LocalDate> lookupDates = new HashSet<>();
+        lookupDates.add(reportParameters.getReportDate());
+
+        reportParameters.getPeriods().stream()
+                .filter(period -> period != Period.ALL)
+                .forEach(period -> lookupDates.add(reportParameters.getReportDate().minusDays(period.getDayCount())));
+
+        Set<LocalDate> windowDates = new HashSet<>();
+        reportParameters.getPnlHistoryUnits().forEach(unit ->
+                createPriceWindows(unit, unit.getSize()).forEach(window -> {
+                    windowDates.add(window.getLeft());
+                    windowDates.add(window.getRight());
+                }));
+        lookupDates.addAll(windowDates);
+
+        Map<Instrument, Set<LocalDate>> requirements = new HashMap<>();
+        timelines.forEach((instrument, timeline) -> {
+            LocalDate firstDate = timeline.getFirstDay();
+            LocalDate lastDate = timeline.getLastDay();
+            boolean closed = BigDecimalUtil.isZero(timeline.getFinalAmount());
+
+            // Prices are only looked up while the position is open
+            Set<LocalDate> dates = lookupDates.stream()
+                    .filter(d -> !d.isBefore(firstDate))
+                    .filter(d -> !closed || d.isBefore(lastDate))
+                    .collect(Collectors.toSet());
+
+            if (!dates.isEmpty()) {
+                requirements.computeIfAbsent(instrument, (i) -> new HashSet<>()).addAll(dates);
+            }
+        });
+
+        // Market data of historical windows
+        if (!timelines.isEmpty() && !windowDates.isEmpty()) {
+            requirements.computeIfAbsent(new Instrument(InstrumentType.CURRENCY, "USD"), (i) -> new HashSet<>()).addAll(windowDates);
+            requirements.computeIfAbsent(new Instrument(InstrumentType.CURRENCY, "EUR"), (i) -> new HashSet<>()).addAll(windowDates);
+        }
+
+        return requirements;
+    }
+
+    // Series of the instruments whose prices are not planned are read through the price service
+    private PriceSeries getPriceSeries(Map<Instrument, PriceSeries> prices, Instrument instrument) {
+        PriceSeries series = prices.get(instrument);
+        return series != null ? series : priceService.getPriceSeries(instrument, Collections.emptySet());
+    }
+
+    private List<InstrumentAnalyzeResult> createOpenPositionsTable(List<ITransaction> transactions, Map<Instrument, PriceSeries> prices, ReportParameters reportParameters) throws PriceApiException {
+        Map<Instrument, List<ITransaction>> openPositions = transactionService.getOpenPositions(transactions);
+
+        return new ArrayList<>(mapByInstrument(openPositions.keySet(), instrument -> {
+            InstrumentAnalyzeResult instrumentAnalyzeResult = new InstrumentAnalyzeResult(instrument, openPositions.get(instrument));
+            Supplier<Quotes> price = Analyzer.sharedPrice(getPriceSeries(prices, instrument), reportParameters.getReportDate());
+            Analyzer walletAnalyzer = new Analyzer(instrumentAnalyzeResult.getTransactions(), price);
+
+            instrumentAnalyzeResult.setTotalAmount(walletAnalyzer.getTotalAmount());
+            instrumentAnalyzeResult.setTotalValue(walletAnalyzer.calculateTotalValue());
+            instrumentAnalyzeResult.setUnitCost(walletAnalyzer.calculateUnitCost());
+
+            if (!BigDecimalUtil.isZero(instrumentAnalyzeResult.getTotalAmount())) {
+                instrumentAnalyzeResult.setPrice(price.get());
+            }
+
+            Map<Period, List<ITransaction>> dividedTransactions = transactionService.createTransactionSetsByPeriods(
+                    instrumentAnalyzeResult.getTransactions(), reportParameters.getPeriods(), reportParameters.getReportDate());
+            for (Period period: reportParameters.getPeriods()) {
+                List<ITransaction> transactionsOfPeriod = dividedTransactions.get(period);
+                if (transactionsOfPeriod != null) {
+                    Analyzer periodAnalyzer = new Analyzer(transactionsOfPeriod, price);
+
+                    instrumentAnalyzeResult.getPnlCalculation().put(period, periodAnalyzer.calculatePNL());
+                    instrumentAnalyzeResult.getRoiCalculation().put(period, periodAnalyzer.calculateROI());
+                }
+            }
+            return instrumentAnalyzeResult;
+        }).values());
+    }
+
+    private AggregatedAnalyzeResult createAggregatedResult(Map<Instrument, TransactionTimeline> timelines, Map<Instrument, PriceSeries> prices, ReportParameters reportParameters) throws PriceApiException {
+        AggregatedAnalyzeResult rootResult = new AggregatedAnalyzeResult("Total");
+
+        List<Period> sortedPeriods = reportParameters.getPeriods().stream().sorted().collect(Collectors.toList());
+
+        // Analyze instruments (parallel)
+        Map<Instrument, Map<Period, Analyzer>> analyzers = mapByInstrument(timelines.keySet(), instrument -> {
+            Map<Period, List<ITransaction>> dividedTransactions = transactionService.createTransactionSetsByPeriods(
+                    timelines.get(instrument), reportParameters.getPeriods(), reportParameters.getReportDate());
+
+            // Analyzers of the periods share the same price
+            Supplier<Quotes> price = Analyzer.sharedPrice(getPriceSeries(prices, instrument), reportParameters.getReportDate());
+            Map<Period, Analyzer> periodAnalyzers = new EnumMap<>(Period.class);
+            for (Period period: sortedPeriods) {
+                List<ITransaction> transactionsOfPeriod = dividedTransactions.get(period);
+                if (!transactionsOfPeriod.isEmpty()) {
+                    periodAnalyzers.put(period, new Analyzer(transactionsOfPeriod, price));
+                }
+            }
+            return periodAnalyzers;
+        });
+
+        // Merge results
+        for (Instrument instrument: analyzers.keySet()) {
             AggregatedAnalyzeResult instrumentTypeResult = rootResult.getChildren().computeIfAbsent(
                     String.valueOf(instrument.getInstrumentType()),
                     (t) -> new AggregatedAnalyzeResult(String.valueOf(t))
@@ -116,32 +317,23 @@ public class ReportService implements IReportService {
                     (s) -> new AggregatedAnalyzeResult(s)
             );
 
-            Map<Period, List<ITransaction>> dividedTransactions = transactionService.createTransactionSetsByPeriods(
-                    groupedTransactions.get(instrument), reportParameters.getPeriods(), reportParameters.getReportDate());
-
-            for (Period period: reportParameters.getPeriods()) {
-                List<ITransaction> transactionsOfPeriod = dividedTransactions.get(period);
-                if (!transactionsOfPeriod.isEmpty()) {
-                    Analyzer periodAnalyzer = new Analyzer(priceService, transactionsOfPeriod,
-                            reportParameters.getReportDate());
-
-                    appendAnalyzeResult(rootResult, periodAnalyzer, period);
-                    appendAnalyzeResult(instrumentTypeResult, periodAnalyzer, period);
-                    appendAnalyzeResult(symbolResult, periodAnalyzer, period);
-                }
-            }
+            analyzers.get(instrument).forEach((period, periodAnalyzer) -> {
+                appendAnalyzeResult(rootResult, periodAnalyzer, period);
+                appendAnalyzeResult(instrumentTypeResult, periodAnalyzer, period);
+                appendAnalyzeResult(symbolResult, periodAnalyzer, period);
+            });
         }
 
         return rootResult;
     }
 
     private void appendAnalyzeResult(AggregatedAnalyzeResult targetResult, Analyzer analyzer, Period period) {
-        Optional<Quotes> prevPnl = targetResult.getPnlCalculation().computeIfAbsent(period, (p) -> Optional.of(Quotes.ZERO));
-        targetResult.getPnlCalculation().put(period, Optional.of(QuotesUtil.add(prevPnl.get(), analyzer.calculatePNL())));
+        Optional<Quotes> prevPnl = targetResult.getPnlCalculation().computeIfAbsent(period, (p) -> Optional.of(Quotes.zero()));
+        QuotesUtil.addTo(prevPnl.get(), analyzer.calculatePNL());
 
         if (period == Period.ALL && !BigDecimalUtil.isZero(analyzer.getTotalAmount())) {
             // If open position
-            targetResult.setTotalValue(QuotesUtil.add(targetResult.getTotalValue(), analyzer.calculateTotalValue()));
+            QuotesUtil.addTo(targetResult.getTotalValue(), analyzer.calculateTotalValue());
         }
 
         if (!QuotesUtil.isZero(targetResult.getTotalValue())) {
@@ -154,31 +346,36 @@ public class ReportService implements IReportService {
         }
     }
 
-    private List<HistoricalAnalyzeResult> createHistoricalResult(List<ITransaction> transactions, ReportParameters reportParameters, PnlHistoryUnit unit, int count) throws PriceApiException {
-        // Group by instrument
-        Map<Instrument, List<ITransaction>> groupedTransactions = transactions
-                .stream()
-                .collect(Collectors.groupingBy(ITransaction::getInstrument));
-
+    private List<HistoricalAnalyzeResult> createHistoricalResult(Map<Instrument, TransactionTimeline> timelines, Map<Instrument, PriceSeries> prices, Map<Instrument, ReportStateStore.InstrumentState> states, ReportParameters reportParameters, PnlHistoryUnit unit, int count) throws PriceApiException {
+        List<Pair<LocalDate, LocalDate>> priceWindows = createPriceWindows(unit, count);
         Map<String, HistoricalAnalyzeResult> pnlSums = new LinkedHashMap<>();
 
-        for (Instrument instrument: groupedTransactions.keySet()) {
-            List<Pair<LocalDate, LocalDate>> priceWindows = createPriceWindows(unit, count);
-
-            priceWindows.forEach(window -> {
+        // Analyze instruments (parallel)
+        Map<Instrument, List<HistoricalAnalyzer.WindowResult>> windowResults = mapByInstrument(timelines.keySet(), instrument -> {
+            HistoricalAnalyzer historicalAnalyzer = new HistoricalAnalyzer(getPriceSeries(prices, instrument), timelines.get(instrument));
+            Map<Pair<LocalDate, LocalDate>, HistoricalAnalyzer.WindowResult> reusableResults = states.get(instrument).getWindowResults();
+
+            return priceWindows.stream()
+                    .map(window -> reusableResults.computeIfAbsent(window,
+                            (w) -> historicalAnalyzer.analyzeWindow(w.getLeft(), w.getRight())))
+                    .collect(Collectors.toList());
+        });
+
+        // Merge results
+        for (List<HistoricalAnalyzer.WindowResult> instrumentResults: windowResults.values()) {
+            for (int i = 0; i < priceWindows.size(); i++) {
+                Pair<LocalDate, LocalDate> window = priceWindows.get(i);
                 String windowId = MessageFormat.format("{0} -> {1}", window.getLeft(), window.getRight());
-                List<ITransaction> transactionWindow = transactionService.createTransactionSetByWindow(
-                        groupedTransactions.get(instrument), window.getLeft(), window.getRight());
+                HistoricalAnalyzer.WindowResult windowResult = instrumentResults.get(i);
 
-                Analyzer periodAnalyzer = new Analyzer(priceService, transactionWindow, window.getRight());
                 HistoricalAnalyzeResult windowCalculation = pnlSums.computeIfAbsent(
                         windowId,
                         (p) -> new HistoricalAnalyzeResult(window.getLeft(), window.getRight())
                 );
 
-                windowCalculation.setInitialValue(QuotesUtil.add(windowCalculation.getInitialValue(), periodAnalyzer.calculateInitialValue()));
-                windowCalculation.setTotalValue(QuotesUtil.add(windowCalculation.getTotalValue(), periodAnalyzer.calculateTotalValue()));
-                windowCalculation.setPnl(QuotesUtil.add(windowCalculation.getPnl(), periodAnalyzer.calculatePNL()));
+                QuotesUtil.addTo(windowCalculation.getInitialValue(), windowResult.getInitialValue());
+                QuotesUtil.addTo(windowCalculation.getTotalValue(), windowResult.getTotalValue());
+                QuotesUtil.addTo(windowCalculation.getPnl(), windowResult.getPnl());
                 windowCalculation.setCashFlow(QuotesUtil.subtract(
                         windowCalculation.getTotalValue(),
                         QuotesUtil.add(windowCalculation.getInitialValue(), windowCalculation.getPnl())
@@ -190,19 +387,22 @@ public class ReportService implements IReportService {
                             windowCalculation.getInitialValue()
                     ));
                 }
+            }
+        }
 
-                // Add market data
-                windowCalculation.getMarketData().put(
-                        "USD",
-                        getPriceChange(new Instrument(InstrumentType.CURRENCY, "USD"), window.getLeft(), window.getRight())
-                );
-
-                windowCalculation.getMarketData().put(
-                        "EUR",
-                        getPriceChange(new Instrument(InstrumentType.CURRENCY, "EUR"), window.getLeft(), window.getRight())
-                );
+        // Add market data
+        PriceSeries usdPrices = getPriceSeries(prices, new Instrument(InstrumentType.CURRENCY, "USD"));
+        PriceSeries eurPrices = getPriceSeries(prices, new Instrument(InstrumentType.CURRENCY, "EUR"));
+        for (HistoricalAnalyzeResult windowCalculation: pnlSums.values()) {
+            windowCalculation.getMarketData().put(
+                    "USD",
+                    getPriceChange(usdPrices, windowCalculation.getStart(), windowCalculation.getEnd())
+            );
 
-            });
+            windowCalculation.getMarketData().put(
+                    "EUR",
+                    getPriceChange(eurPrices, windowCalculation.getStart(), windowCalculation.getEnd())
+            );
         }
 
         return new ArrayList<>(pnlSums.values());
@@ -240,13 +440,58 @@ public class ReportService implements IReportService {
         return windows;
     }
 
-    private Quotes getPriceChange(Instrument instrument, LocalDate start, LocalDate end) throws PriceApiException {
-        Quotes priceAtPeriodStart = priceService.getPrice(instrument, start);
-        Quotes priceAtPeriodEnd = priceService.getPrice(instrument, end);
+    private Quotes getPriceChange(PriceSeries prices, LocalDate start, LocalDate end) throws PriceApiException {
+        Quotes priceAtPeriodStart = prices.get(start);
+        Quotes priceAtPeriodEnd = prices.get(end);
 
         return QuotesUtil.divide(
                 QuotesUtil.subtract(priceAtPeriodEnd, priceAtPeriodStart),
                 priceAtPeriodStart
         );
     }
+
+    // Runs the task for every instrument on the report executor, results are returned in INSTRUMENT_ORDER
+    private <R> Map<Instrument, R> mapByInstrument(Collection<Instrument> instruments, Function<Instrument, R> task) {
+        List<Instrument> sortedInstruments = instruments.stream().sorted(INSTRUMENT_ORDER).collect(Collectors.toList());
+        Map<Instrument, R> results = new LinkedHashMap<>();
+
+        if (executor == null || sortedInstruments.size() < 2) {
+            sortedInstruments.forEach(instrument -> results.put(instrument, task.apply(instrument)));
+            return results;
+        }
+
+        // Work of the tasks is measured in the stage they are started from
+        Function<Instrument, R> measuredTask = PipelineMetrics.propagate(task);
+        List<Future<R>> futures = sortedInstruments.stream()
+                .map(instrument -> executor.submit(() -> measuredTask.apply(instrument)))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < sortedInstruments.size(); i++) {
+            try {
+                results.put(sortedInstruments.get(i), futures.get(i).get());
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new ReportGenerationException(e.getCause());
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new ReportGenerationException(e);
+            }
+        }
+
+        return results;
+    }
+
+    private static ExecutorService createExecutor() {
+        if (Environment.REPORT_PARALLELISM <= 1) {
+            return null;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Environment.REPORT_PARALLELISM);
+        ExecutorManager.assign(executorService);
+        return executorService;
+    }
 }
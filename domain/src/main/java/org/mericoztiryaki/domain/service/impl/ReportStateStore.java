@@ -0,0 +1,282 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.tuple.Pair;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionTimeline;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+// Historical window results of the previous report of a source, one file per source identity.
+//
+// A window result only depends on the instrument's transactions until the window end and the prices at the window
+// start and end. Transactions of an instrument are digested in date order, if the digest of the previously seen
+// transactions is unchanged, only transactions were appended and the windows ending before the first new transaction
+// are reused. Only the windows ending before the day they are saved on are kept, since today's prices may change.
+//
+// Layout: a header (magic, version, currency count, instrument count) and per instrument its type, symbol, price
+// version, transaction count, digest and window results. A state is valid while the price version of its instrument
+// is the same. The version changes whenever a price of the instrument is added to the price store, including a price
+// of a day which was served without one (e.g. not published yet), so window results never outlive the prices they
+// were calculated with. Prices added for other instruments keep the state. The version must be read after the windows
+// are calculated.
+@Log4j2
+public class ReportStateStore {
+
+    private static final int MAGIC = 0x50415253;
+    private static final int VERSION = 2;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final String directory;
+
+    public ReportStateStore(String directory) {
+        this.directory = directory;
+    }
+
+    // Returns the states whose price version is the current one of their instrument, an empty map if there is none
+    public Map<Instrument, InstrumentState> load(String identity, ToLongFunction<Instrument> priceVersions) {
+        Path path = pathOf(identity);
+        if (!Files.isRegularFile(path)) {
+            return Collections.emptyMap();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return Collections.emptyMap();
+            }
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != CURRENCIES.length) {
+                return Collections.emptyMap();
+            }
+
+            Map<Instrument, InstrumentState> states = new HashMap<>();
+            int instrumentCount = buffer.getInt();
+            for (int i = 0; i < instrumentCount; i++) {
+                InstrumentType type = InstrumentType.valueOf(TransactionSnapshotStore.readString(buffer));
+                Instrument instrument = new Instrument(type, TransactionSnapshotStore.readString(buffer));
+
+                long priceVersion = buffer.getLong();
+                int transactionCount = buffer.getInt();
+                byte[] digest = new byte[buffer.getShort()];
+                buffer.get(digest);
+
+                InstrumentState state = new InstrumentState(transactionCount, digest);
+                state.setPriceVersion(priceVersion);
+                int windowCount = buffer.getInt();
+                for (int w = 0; w < windowCount; w++) {
+                    LocalDate start = LocalDate.ofEpochDay(buffer.getInt());
+                    LocalDate end = LocalDate.ofEpochDay(buffer.getInt());
+                    Quotes initialValue = TransactionSnapshotStore.readQuotes(buffer);
+                    Quotes totalValue = TransactionSnapshotStore.readQuotes(buffer);
+                    Quotes pnl = TransactionSnapshotStore.readQuotes(buffer);
+                    state.getWindowResults().put(Pair.of(start, end),
+                            new HistoricalAnalyzer.WindowResult(initialValue, totalValue, pnl));
+                }
+
+                long currentVersion = priceVersions.applyAsLong(instrument);
+                if (currentVersion != 0 && priceVersion == currentVersion) {
+                    states.put(instrument, state);
+                }
+            }
+
+            log.info("Report state loaded. Instruments: {}", states.size());
+            return states;
+        } catch (Exception e) {
+            log.warn("Report state can't read, report will be calculated from scratch", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    // States without a price version are not saved
+    public void save(String identity, Map<Instrument, InstrumentState> states) {
+        Map<Instrument, InstrumentState> versionedStates = new HashMap<>();
+        states.forEach((instrument, state) -> {
+            if (state.getPriceVersion() != 0) {
+                versionedStates.put(instrument, state);
+            }
+        });
+        if (versionedStates.isEmpty()) {
+            return;
+        }
+
+        Path path = pathOf(identity);
+        Path tempPath = null;
+        long today = LocalDate.now().toEpochDay();
+
+        try {
+            Files.createDirectories(path.getParent());
+            tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tempPath), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(CURRENCIES.length);
+                out.writeInt(versionedStates.size());
+
+                for (Map.Entry<Instrument, InstrumentState> e: versionedStates.entrySet()) {
+                    InstrumentState state = e.getValue();
+                    TransactionSnapshotStore.writeString(out, e.getKey().getInstrumentType().name());
+                    TransactionSnapshotStore.writeString(out, e.getKey().getSymbol());
+                    out.writeLong(state.getPriceVersion());
+                    out.writeInt(state.getTransactionCount());
+                    out.writeShort(state.getDigest().length);
+                    out.write(state.getDigest());
+
+                    Map<Pair<LocalDate, LocalDate>, HistoricalAnalyzer.WindowResult> windowResults = new HashMap<>();
+                    state.getWindowResults().forEach((window, result) -> {
+                        if (window.getRight().toEpochDay() < today) {
+                            windowResults.put(window, result);
+                        }
+                    });
+
+                    out.writeInt(windowResults.size());
+                    for (Map.Entry<Pair<LocalDate, LocalDate>, HistoricalAnalyzer.WindowResult> w: windowResults.entrySet()) {
+                        out.writeInt((int) w.getKey().getLeft().toEpochDay());
+                        out.writeInt((int) w.getKey().getRight().toEpochDay());
+                        TransactionSnapshotStore.writeQuotes(out, w.getValue().getInitialValue());
+                        TransactionSnapshotStore.writeQuotes(out, w.getValue().getTotalValue());
+                        TransactionSnapshotStore.writeQuotes(out, w.getValue().getPnl());
+                    }
+                }
+            }
+
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Report state saved. Instruments: {}", versionedStates.size());
+        } catch (Exception e) {
+            log.warn("Report state can't saved", e);
+            if (tempPath != null) {
+                new File(tempPath.toString()).delete();
+            }
+        }
+    }
+
+    // State of the instrument for this report, window results of the previous state are carried over if its
+    // transactions are a prefix of the current ones and the windows end before the first new transaction
+    public InstrumentState continueState(TransactionTimeline timeline, InstrumentState previous) {
+        List<ITransaction> transactions = timeline.getTransactions();
+        int previousCount = previous != null && previous.getTransactionCount() <= transactions.size() ?
+                previous.getTransactionCount() : -1;
+
+        MessageDigest digest = newDigest();
+        byte[] previousDigest = null;
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        for (int i = 0; i < transactions.size(); i++) {
+            if (i == previousCount) {
+                previousDigest = digestOf(digest);
+            }
+            update(digest, buffer, transactions.get(i));
+        }
+        if (previousCount == transactions.size()) {
+            previousDigest = digestOf(digest);
+        }
+
+        InstrumentState state = new InstrumentState(transactions.size(), digest.digest());
+
+        if (previousDigest != null && Arrays.equals(previousDigest, previous.getDigest())) {
+            long firstNewDay = previousCount < transactions.size() ?
+                    transactions.get(previousCount).getDate().toLocalDate().toEpochDay() : Long.MAX_VALUE;
+
+            previous.getWindowResults().forEach((window, result) -> {
+                if (window.getRight().toEpochDay() < firstNewDay) {
+                    state.getWindowResults().put(window, result);
+                }
+            });
+        }
+
+        return state;
+    }
+
+    private Path pathOf(String identity) {
+        MessageDigest digest = newDigest();
+        byte[] hash = digest.digest(identity.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder name = new StringBuilder();
+        for (byte b: hash) {
+            name.append(String.format("%02x", b));
+        }
+        return Paths.get(directory, name + ".bin");
+    }
+
+    // Fields a window result depends on
+    private static void update(MessageDigest digest, ByteBuffer buffer, ITransaction t) {
+        buffer.clear();
+        buffer.putLong(t.getDate().toEpochSecond(ZoneOffset.UTC)).putInt(t.getDate().getNano())
+                .put((byte) t.getTransactionType().ordinal());
+        buffer.flip();
+        digest.update(buffer);
+
+        update(digest, t.getAmount());
+        for (Currency currency: CURRENCIES) {
+            BigDecimal value = t.getPurchasePrice().get(currency);
+            if (value != null) {
+                digest.update((byte) currency.ordinal());
+                update(digest, value);
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, BigDecimal value) {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        digest.update((byte) value.scale());
+        digest.update((byte) unscaled.length);
+        digest.update(unscaled);
+    }
+
+    private static byte[] digestOf(MessageDigest digest) {
+        try {
+            return ((MessageDigest) digest.clone()).digest();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class InstrumentState {
+        private final int transactionCount;
+        private final byte[] digest;
+        private final Map<Pair<LocalDate, LocalDate>, HistoricalAnalyzer.WindowResult> windowResults = new HashMap<>();
+        // Price version of the instrument the window results are calculated with, 0 until it is set
+        @Setter
+        private long priceVersion;
+    }
+}
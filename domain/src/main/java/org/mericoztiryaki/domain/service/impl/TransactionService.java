@@ -6,6 +6,7 @@ import lombok.extern.log4j.Log4j2;
 import org.mericoztiryaki.domain.exception.InvalidTransactionDefinitionException;
 import org.mericoztiryaki.domain.exception.PriceApiException;
 import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
 import org.mericoztiryaki.domain.model.constant.Currency;
 import org.mericoztiryaki.domain.model.constant.InstrumentType;
 import org.mericoztiryaki.domain.model.constant.Period;
@@ -13,10 +14,12 @@ import org.mericoztiryaki.domain.model.constant.TransactionType;
 import org.mericoztiryaki.domain.model.transaction.ITransaction;
 import org.mericoztiryaki.domain.model.transaction.Transaction;
 import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.model.transaction.TransactionTimeline;
 import org.mericoztiryaki.domain.model.transaction.UnifiedTransaction;
 import org.mericoztiryaki.domain.service.IPriceService;
 import org.mericoztiryaki.domain.service.ITransactionService;
 import org.mericoztiryaki.domain.util.BigDecimalUtil;
+import org.mericoztiryaki.domain.util.QuotesUtil;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -29,46 +32,128 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TransactionService implements ITransactionService {
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
     private final IPriceService priceService;
 
     @Override
     public ITransaction buildTransactionObject(TransactionDefinition definition) throws InvalidTransactionDefinitionException, PriceApiException {
+        ParsedDefinition parsed = parse(definition);
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+            LocalDate date = parsed.getTime().toLocalDate();
+            return parsed.toTransaction(
+                    priceService.calculateExchangeRates(date, parsed.getPurchasePrice(), parsed.getCurrency()),
+                    priceService.calculateExchangeRates(date, parsed.getCommissionPrice(), parsed.getCurrency()));
+        } catch (Exception e) {
+            log.error("Transaction row is invalid. Index: {}", definition.getIndex(), e);
+            throw new InvalidTransactionDefinitionException(e, definition.getIndex());
+        }
+    }
 
-            LocalDateTime transactionTime = LocalDateTime.parse(definition.getDate(), formatter);
-            Currency transactionCurrency = Currency.valueOf(definition.getCurrency());
+    @Override
+    public List<ITransaction> buildTransactionObjects(List<TransactionDefinition> definitions) throws InvalidTransactionDefinitionException {
+        List<ParsedDefinition> parsedDefinitions = definitions.stream()
+                .map(TransactionService::parse)
+                .collect(Collectors.toList());
+
+        // Fetch exchange rates of all distinct (currency, day) pairs at once. If it fails, rates are asked per row below,
+        // so the failure is reported with the index of the first row whose rate can't be fetched.
+        Map<Instrument, Set<LocalDate>> requiredRates = new HashMap<>();
+        parsedDefinitions.forEach(p -> requiredRates
+                .computeIfAbsent(new Instrument(InstrumentType.CURRENCY, p.getCurrency().toString()), k -> new HashSet<>())
+                .add(p.getTime().toLocalDate()));
+        try {
+            priceService.prefetchPrices(requiredRates);
+        } catch (PriceApiException e) {
+            log.warn("Exchange rates can't prefetched, they are fetched per row: {}", e.getMessage());
+        }
 
-            return new Transaction(
-                    transactionTime,
+        // Rows of a day share the same rate vector
+        Map<Currency, Map<LocalDate, Quotes>> rates = new EnumMap<>(Currency.class);
+
+        List<ITransaction> transactions = new ArrayList<>(parsedDefinitions.size());
+        for (ParsedDefinition parsed: parsedDefinitions) {
+            try {
+                Quotes rate = rates.computeIfAbsent(parsed.getCurrency(), k -> new HashMap<>())
+                        .computeIfAbsent(parsed.getTime().toLocalDate(), date -> priceService.getPrice(
+                                new Instrument(InstrumentType.CURRENCY, parsed.getCurrency().toString()), date));
+
+                transactions.add(parsed.toTransaction(
+                        QuotesUtil.multiply(rate, parsed.getPurchasePrice()),
+                        QuotesUtil.multiply(rate, parsed.getCommissionPrice())));
+            } catch (Exception e) {
+                log.error("Transaction row is invalid. Index: {}", parsed.getIndex(), e);
+                throw new InvalidTransactionDefinitionException(e, parsed.getIndex());
+            }
+        }
+
+        return transactions;
+    }
+
+    private static ParsedDefinition parse(TransactionDefinition definition) throws InvalidTransactionDefinitionException {
+        try {
+            return new ParsedDefinition(
+                    definition.getIndex(),
+                    LocalDateTime.parse(definition.getDate(), DATE_FORMATTER),
                     new Instrument(InstrumentType.valueOf(definition.getInstrumentType()), definition.getSymbol()),
                     TransactionType.valueOf(definition.getTransactionType()),
                     new BigDecimal(definition.getAmount().replace(",", "")),
-                    priceService.calculateExchangeRates(transactionTime.toLocalDate(),
-                            new BigDecimal(definition.getPurchasePrice().replace(",", "")),
-                            transactionCurrency
-                    ),
-                    priceService.calculateExchangeRates(transactionTime.toLocalDate(),
-                            new BigDecimal(definition.getCommissionPrice().replace(",", "")),
-                            transactionCurrency
-                    ),
-                    transactionCurrency);
+                    new BigDecimal(definition.getPurchasePrice().replace(",", "")),
+                    new BigDecimal(definition.getCommissionPrice().replace(",", "")),
+                    Currency.valueOf(definition.getCurrency()));
         } catch (Exception e) {
             log.error("Transaction row is invalid. Index: {}", definition.getIndex(), e);
             throw new InvalidTransactionDefinitionException(e, definition.getIndex());
         }
     }
 
+    // Transaction definition with parsed fields, prices are not converted yet
+    @Getter
+    @RequiredArgsConstructor
+    private static class ParsedDefinition {
+        private final int index;
+        private final LocalDateTime time;
+        private final Instrument instrument;
+        private final TransactionType transactionType;
+        private final BigDecimal amount;
+        private final BigDecimal purchasePrice;
+        private final BigDecimal commissionPrice;
+        private final Currency currency;
+
+        public Transaction toTransaction(Quotes purchaseQuotes, Quotes commissionQuotes) {
+            return new Transaction(time, instrument, transactionType, amount, purchaseQuotes, commissionQuotes, currency);
+        }
+    }
+
     @Override
     public Map<Period, List<ITransaction>> createTransactionSetsByPeriods(List<ITransaction> transactions,
                                                                           Set<Period> periods, LocalDate portfolioDate) {
+        Collection<TransactionTimeline> timelines = createTimelines(transactions);
+        LocalDate firstDay = transactions.get(0).getDate().toLocalDate();
+
+        Map<Period, List<ITransaction>> transactionSets = new HashMap<>();
+
+        periods.forEach(period -> {
+            LocalDate periodStart = period != Period.ALL ? portfolioDate.minusDays(period.getDayCount()) :
+                    firstDay.minusDays(1);
+
+            transactionSets.put(period, createTransactionSetByWindow(timelines, periodStart, portfolioDate));
+        });
+
+        return transactionSets;
+    }
+
+    @Override
+    public Map<Period, List<ITransaction>> createTransactionSetsByPeriods(TransactionTimeline timeline,
+                                                                          Set<Period> periods, LocalDate portfolioDate) {
         Map<Period, List<ITransaction>> transactionSets = new HashMap<>();
 
         periods.forEach(period -> {
             LocalDate periodStart = period != Period.ALL ? portfolioDate.minusDays(period.getDayCount()) :
-                    transactions.get(0).getDate().toLocalDate().minusDays(1);
+                    timeline.getFirstDay().minusDays(1);
 
-            transactionSets.put(period, createTransactionSetByWindow(transactions, periodStart, portfolioDate));
+            transactionSets.put(period, createTransactionSetByWindow(
+                    Collections.singletonList(timeline), periodStart, portfolioDate));
         });
 
         return transactionSets;
@@ -76,58 +161,43 @@ public class TransactionService implements ITransactionService {
 
     @Override
     public List<ITransaction> createTransactionSetByWindow(List<ITransaction> transactions, LocalDate start, LocalDate end) throws PriceApiException {
-        Map<Instrument, TransactionSet> transactionSets = new HashMap<>();
+        return createTransactionSetByWindow(createTimelines(transactions), start, end);
+    }
 
+    @Override
+    public TransactionTimeline createTimeline(List<ITransaction> transactions) {
+        List<ITransaction> sorted = new ArrayList<>(transactions);
+        sorted.sort(Comparator.comparing(ITransaction::getDate));
+        return new TransactionTimeline(sorted);
+    }
+
+    private Collection<TransactionTimeline> createTimelines(List<ITransaction> transactions) {
+        Map<Instrument, List<ITransaction>> groupedTransactions = new HashMap<>();
         for (ITransaction t: transactions) {
-            TransactionSet transactionSet = transactionSets.computeIfAbsent(
-                    t.getInstrument(),
-                    (i) -> new TransactionSet(start.atStartOfDay(), i)
-            );
-
-            if (t.getDate().toLocalDate().isBefore(start) || t.getDate().toLocalDate().isEqual(start)) {
-               transactionSet.getUnifiedTransaction().addTransaction(t);
-            } else if (t.getDate().toLocalDate().isBefore(end) || t.getDate().toLocalDate().isEqual(end)) {
-                transactionSet.getTransactionHappenedInPeriod().add(t);
-            }
+            groupedTransactions.computeIfAbsent(t.getInstrument(), (i) -> new ArrayList<>()).add(t);
         }
 
-        return transactionSets.entrySet()
-                .stream()
-                // Filter unnecessary sets
-                .filter(e ->
-                        !(BigDecimalUtil.isZero(e.getValue().getUnifiedTransaction().getAmount()) &&
-                        e.getValue().getTransactionHappenedInPeriod().size() == 0)
-                )
-                .map(e -> {
-                    if (!BigDecimalUtil.isZero(e.getValue().getUnifiedTransaction().getAmount())) {
-                        e.getValue().getUnifiedTransaction().setPurchasePrice(
-                                priceService.getPrice(e.getValue().getUnifiedTransaction().getInstrument(), start));
-                    }
-                    return e.getValue();
-                })
-                .flatMap(e -> e.getTransactions().stream())
-                .sorted(Comparator.comparing(ITransaction::getDate))
-                .collect(Collectors.toList());
+        List<TransactionTimeline> timelines = new ArrayList<>(groupedTransactions.size());
+        groupedTransactions.values().forEach(instrumentTransactions -> timelines.add(createTimeline(instrumentTransactions)));
+        return timelines;
     }
 
-    @Getter
-    private static class TransactionSet {
-        private final UnifiedTransaction unifiedTransaction;
-        private final List<ITransaction> transactionHappenedInPeriod;
-
-        public TransactionSet(LocalDateTime date, Instrument instrument) {
-            this.unifiedTransaction = new UnifiedTransaction(date, instrument);
-            this.transactionHappenedInPeriod = new ArrayList<>();
-        }
+    private List<ITransaction> createTransactionSetByWindow(Collection<TransactionTimeline> timelines, LocalDate start, LocalDate end) throws PriceApiException {
+        List<ITransaction> result = new ArrayList<>();
 
-        public List<ITransaction> getTransactions() {
-            List<ITransaction> result = new ArrayList<>();
-            if (!BigDecimalUtil.isZero(this.unifiedTransaction.getAmount())) {
-                result.add(this.unifiedTransaction);
+        for (TransactionTimeline timeline: timelines) {
+            // Closed positions are not carried into the window
+            UnifiedTransaction unifiedTransaction = timeline.unifyUntil(start);
+            if (!BigDecimalUtil.isZero(unifiedTransaction.getAmount())) {
+                unifiedTransaction.setPurchasePrice(priceService.getPrice(timeline.getInstrument(), start));
+                result.add(unifiedTransaction);
             }
-            result.addAll(this.transactionHappenedInPeriod);
-            return result;
+
+            result.addAll(timeline.getTransactionsBetween(start, end));
         }
+
+        result.sort(Comparator.comparing(ITransaction::getDate));
+        return result;
     }
 
     @Override
@@ -0,0 +1,236 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.constant.TransactionType;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binary snapshots of converted transactions, one file per source fingerprint.
+//
+// Layout: a header (magic, version, currency count, price version, creation day, last transaction day, instrument
+// count, transaction count), the instrument table and the transactions. A snapshot is valid while the price version
+// of the exchange rates is the same. The version changes whenever an exchange rate is added to the price store, so a
+// rate which was missing during the conversion invalidates the snapshot once it is fetched, while prices of other
+// instruments keep it. The version must be read after the conversion.
+// Today's prices are not persisted, so a snapshot with transactions on or after its creation day is only valid during
+// that day.
+@Log4j2
+public class TransactionSnapshotStore {
+
+    private static final int MAGIC = 0x50415453;
+    private static final int VERSION = 1;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+    private final String directory;
+
+    public TransactionSnapshotStore(String directory) {
+        this.directory = directory;
+    }
+
+    // Returns the transactions in the order they are saved, null if there is no valid snapshot
+    public List<ITransaction> load(String fingerprint, long priceVersion) {
+        Path path = pathOf(fingerprint);
+        if (priceVersion == 0 || !Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != CURRENCIES.length
+                    || buffer.getLong() != priceVersion) {
+                return null;
+            }
+
+            long createdOn = buffer.getInt();
+            long lastTransactionDay = buffer.getInt();
+            long today = LocalDate.now().toEpochDay();
+            if (createdOn != today && lastTransactionDay >= createdOn) {
+                log.info("Transaction snapshot contains prices of its creation day, it is outdated");
+                return null;
+            }
+
+            Instrument[] instruments = new Instrument[buffer.getInt()];
+            int transactionCount = buffer.getInt();
+            List<ITransaction> transactions = new ArrayList<>(transactionCount);
+
+            for (int i = 0; i < instruments.length; i++) {
+                InstrumentType type = InstrumentType.valueOf(readString(buffer));
+                instruments[i] = new Instrument(type, readString(buffer));
+            }
+
+            for (int i = 0; i < transactionCount; i++) {
+                LocalDateTime date = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+                Instrument instrument = instruments[buffer.getInt()];
+                TransactionType transactionType = TRANSACTION_TYPES[buffer.get()];
+                byte currencyIndex = buffer.get();
+                Currency currency = currencyIndex >= 0 ? CURRENCIES[currencyIndex] : null;
+                BigDecimal amount = readDecimal(buffer);
+                Quotes purchasePrice = readQuotes(buffer);
+                Quotes commissionPrice = readQuotes(buffer);
+
+                transactions.add(new Transaction(date, instrument, transactionType, amount, purchasePrice,
+                        commissionPrice, currency));
+            }
+
+            log.info("Transaction snapshot loaded. Transactions: {}", transactions.size());
+            return transactions;
+        } catch (Exception e) {
+            log.warn("Transaction snapshot can't read, transactions will be rebuilt", e);
+            return null;
+        }
+    }
+
+    public void save(String fingerprint, long priceVersion, List<ITransaction> transactions) {
+        if (priceVersion == 0) {
+            return;
+        }
+
+        Path path = pathOf(fingerprint);
+        Path tempPath = null;
+
+        Map<Instrument, Integer> instrumentIds = new HashMap<>();
+        List<Instrument> instruments = new ArrayList<>();
+        long lastTransactionDay = Long.MIN_VALUE;
+        for (ITransaction t: transactions) {
+            if (!instrumentIds.containsKey(t.getInstrument())) {
+                instrumentIds.put(t.getInstrument(), instruments.size());
+                instruments.add(t.getInstrument());
+            }
+            lastTransactionDay = Math.max(lastTransactionDay, t.getDate().toLocalDate().toEpochDay());
+        }
+
+        try {
+            Files.createDirectories(path.getParent());
+            // Unique temp file, concurrent reports of the same source may save at the same time
+            tempPath = Files.createTempFile(path.getParent(), fingerprint, ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tempPath), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(CURRENCIES.length);
+                out.writeLong(priceVersion);
+                out.writeInt((int) LocalDate.now().toEpochDay());
+                out.writeInt((int) lastTransactionDay);
+                out.writeInt(instruments.size());
+                out.writeInt(transactions.size());
+
+                for (Instrument instrument: instruments) {
+                    writeString(out, instrument.getInstrumentType().name());
+                    writeString(out, instrument.getSymbol());
+                }
+
+                for (ITransaction t: transactions) {
+                    out.writeLong(t.getDate().toEpochSecond(ZoneOffset.UTC));
+                    out.writeInt(t.getDate().getNano());
+                    out.writeInt(instrumentIds.get(t.getInstrument()));
+                    out.writeByte(t.getTransactionType().ordinal());
+                    Currency currency = t instanceof Transaction ? ((Transaction) t).getCurrency() : null;
+                    out.writeByte(currency != null ? currency.ordinal() : -1);
+                    writeDecimal(out, t.getAmount());
+                    writeQuotes(out, t.getPurchasePrice());
+                    writeQuotes(out, t.getCommissionPrice());
+                }
+            }
+
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Transaction snapshot saved. Transactions: {}", transactions.size());
+        } catch (Exception e) {
+            log.warn("Transaction snapshot can't saved", e);
+            if (tempPath != null) {
+                new File(tempPath.toString()).delete();
+            }
+        }
+    }
+
+    private Path pathOf(String fingerprint) {
+        return Paths.get(directory, fingerprint + ".bin");
+    }
+
+    // Encoding helpers below are shared with ReportStateStore
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Scale and unscaled value as two's-complement bytes, values are kept exactly
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeShort(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer buffer) {
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.getShort()];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    static void writeQuotes(DataOutputStream out, Quotes quotes) throws IOException {
+        int mask = 0;
+        for (int i = 0; i < CURRENCIES.length; i++) {
+            if (quotes.get(CURRENCIES[i]) != null) {
+                mask |= 1 << i;
+            }
+        }
+        out.writeByte(mask);
+
+        for (Currency currency: CURRENCIES) {
+            if (quotes.get(currency) != null) {
+                writeDecimal(out, quotes.get(currency));
+            }
+        }
+    }
+
+    static Quotes readQuotes(ByteBuffer buffer) {
+        byte mask = buffer.get();
+        Quotes quotes = new Quotes();
+        for (int i = 0; i < CURRENCIES.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                quotes.set(CURRENCIES[i], readDecimal(buffer));
+            }
+        }
+        return quotes;
+    }
+}
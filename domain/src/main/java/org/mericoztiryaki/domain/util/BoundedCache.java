@@ -0,0 +1,124 @@
+package org.mericoztiryaki.domain.util;
+
+import org.mericoztiryaki.domain.model.CacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Size bounded LRU cache. Keys are spread over segments, each an access ordered LinkedHashMap guarded by its own lock,
+// so concurrent readers of different keys rarely wait for each other. Every segment evicts its least recently used
+// entry when it is full.
+public class BoundedCache<K, V> {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final long maximumSize;
+    private final Segment<K, V>[] segments;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BoundedCache(long maximumSize) {
+        this.maximumSize = maximumSize;
+        this.segments = new Segment[SEGMENT_COUNT];
+
+        int segmentSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maximumSize / SEGMENT_COUNT));
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(segmentSize, evictionCount);
+        }
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentOf(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+
+        if (value != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+        return value;
+    }
+
+    // Doesn't change the recency of the key
+    public boolean containsKey(K key) {
+        Segment<K, V> segment = segmentOf(key);
+        synchronized (segment) {
+            return segment.containsKey(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public void putIfAbsent(K key, V value) {
+        Segment<K, V> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.putIfAbsent(key, value);
+        }
+    }
+
+    public void putAll(Map<K, V> values) {
+        values.forEach(this::put);
+    }
+
+    // Time spent to load a missing value from the next tier
+    public void recordLoad(long nanos) {
+        loadCount.increment();
+        totalLoadTime.add(nanos);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment: segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(size(), maximumSize, hitCount.sum(), missCount.sum(), loadCount.sum(),
+                totalLoadTime.sum(), evictionCount.sum());
+    }
+
+    private Segment<K, V> segmentOf(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private final int maximumSize;
+        private final LongAdder evictionCount;
+
+        Segment(int maximumSize, LongAdder evictionCount) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+            this.evictionCount = evictionCount;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maximumSize) {
+                evictionCount.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -26,6 +26,52 @@ public class Environment {
 
     public static final String PRICE_CACHE_PATH = readEnvVariable("PRICE_CACHE_PATH", System.getProperty("java.io.tmpdir") + "pvis-price-cache.bin");
 
+    public static final String TRANSACTION_SNAPSHOT_PATH = readEnvVariable("TRANSACTION_SNAPSHOT_PATH", System.getProperty("java.io.tmpdir") + "pvis-transaction-snapshots");
+
+    // Historical window results of the previous report of each source
+    public static final String REPORT_STATE_PATH = readEnvVariable("REPORT_STATE_PATH", System.getProperty("java.io.tmpdir") + "pvis-report-state");
+
+    // Prices kept in memory, less recently used ones are read from the cache file again
+    public static final long PRICE_CACHE_MAX_ENTRIES = Long.parseLong(readEnvVariable("PRICE_CACHE_MAX_ENTRIES", "500000"));
+
+    // New prices are appended to the cache file in batches of this size, or this long after they are fetched
+    public static final int PRICE_CACHE_FLUSH_BATCH_SIZE = Integer.parseInt(readEnvVariable("PRICE_CACHE_FLUSH_BATCH_SIZE", "10000"));
+
+    public static final long PRICE_CACHE_FLUSH_INTERVAL_MILLIS = Long.parseLong(readEnvVariable("PRICE_CACHE_FLUSH_INTERVAL_MILLIS", "1000"));
+
+    // Date ranges which the price api answered without any price are not asked again for this long
+    public static final long PRICE_EMPTY_RANGE_TTL_HOURS = Long.parseLong(readEnvVariable("PRICE_EMPTY_RANGE_TTL_HOURS", "24"));
+
+    // Missing prices of this many days before today may still be published, they are asked again after the ttl above
+    public static final int PRICE_RECENT_DAYS = Integer.parseInt(readEnvVariable("PRICE_RECENT_DAYS", "7"));
+
+    public static final int PRICE_FETCH_PARALLELISM = Integer.parseInt(readEnvVariable("PRICE_FETCH_PARALLELISM", "8"));
+
+    public static final int PRICE_API_KEEP_ALIVE_SECONDS = Integer.parseInt(readEnvVariable("PRICE_API_KEEP_ALIVE_SECONDS", "300"));
+
+    public static final int PRICE_API_TIMEOUT_SECONDS = Integer.parseInt(readEnvVariable("PRICE_API_TIMEOUT_SECONDS", "30"));
+
+    // Thread count used to analyze instruments of a report, 1 disables parallel analysis
+    public static final int REPORT_PARALLELISM = Integer.parseInt(readEnvVariable("REPORT_PARALLELISM",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+    // Excel reports with at least this many transactions are streamed with a window of EXCEL_ROW_WINDOW rows per sheet
+    public static final int EXCEL_STREAMING_THRESHOLD = Integer.parseInt(readEnvVariable("EXCEL_STREAMING_THRESHOLD", "50000"));
+
+    public static final int EXCEL_ROW_WINDOW = Integer.parseInt(readEnvVariable("EXCEL_ROW_WINDOW", "500"));
+
+    // Reports generated at the same time in server mode
+    public static final int REPORT_SERVER_THREADS = Integer.parseInt(readEnvVariable("REPORT_SERVER_THREADS", "4"));
+
+    // Reports generated at the same time in batch mode, prices of each chunk of BATCH_CHUNK_SIZE reports are loaded once
+    public static final int BATCH_PARALLELISM = Integer.parseInt(readEnvVariable("BATCH_PARALLELISM",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+    public static final int BATCH_CHUNK_SIZE = Integer.parseInt(readEnvVariable("BATCH_CHUNK_SIZE", "200"));
+
+    // Stage metrics of each report are appended to this file as a json line, empty disables it
+    public static final String REPORT_METRICS_PATH = readEnvVariable("REPORT_METRICS_PATH", "");
+
     private static String readEnvVariable(String name, String defaultValue) {
         String val = properties.getProperty(name);
         if (val != null) {
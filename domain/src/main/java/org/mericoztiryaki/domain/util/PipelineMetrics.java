@@ -0,0 +1,319 @@
+package org.mericoztiryaki.domain.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Wall time, cpu time and allocated bytes of the stages of a report, with its price cache lookups and price api call
+// latencies. Metrics are bound to the thread generating the report with call(). Tasks submitted to other threads are
+// wrapped with propagate(), their cpu time and allocations are added to the stage they are submitted from. A nested
+// stage is also included in the stage enclosing it. Without bound metrics, measuring does nothing.
+public class PipelineMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = THREADS instanceof com.sun.management.ThreadMXBean ?
+            (com.sun.management.ThreadMXBean) THREADS : null;
+
+    // Upper bounds of the api latency buckets in milliseconds, the last bucket is unbounded
+    private static final long[] LATENCY_BUCKETS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private volatile long wallNanos;
+    private volatile boolean failed;
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final AtomicLongArray apiLatencies = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+
+    public PipelineMetrics(String name) {
+        this.name = name;
+    }
+
+    // Runs the task with these metrics bound to the current thread
+    public <T> T call(Supplier<T> task) {
+        Scope previous = CURRENT.get();
+        CURRENT.set(new Scope(this, null));
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public void finish(boolean failed) {
+        this.wallNanos = System.nanoTime() - startNanos;
+        this.failed = failed;
+    }
+
+    public static <T> T measure(String stageName, Supplier<T> task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return task.get();
+        }
+
+        Stage stage = scope.metrics.getStage(stageName);
+        CURRENT.set(new Scope(scope.metrics, stage));
+
+        long wall = System.nanoTime();
+        long cpu = currentCpuTime();
+        long allocated = currentAllocatedBytes();
+        try {
+            return task.get();
+        } finally {
+            stage.count.increment();
+            stage.wallNanos.add(System.nanoTime() - wall);
+            stage.cpuNanos.add(currentCpuTime() - cpu);
+            stage.allocatedBytes.add(currentAllocatedBytes() - allocated);
+            CURRENT.set(scope);
+        }
+    }
+
+    public static void measure(String stageName, Runnable task) {
+        measure(stageName, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public static <T, R> Function<T, R> propagate(Function<T, R> task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return input -> {
+            Attribution attribution = new Attribution(scope);
+            try {
+                return task.apply(input);
+            } finally {
+                attribution.close();
+            }
+        };
+    }
+
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            Attribution attribution = new Attribution(scope);
+            try {
+                return task.call();
+            } finally {
+                attribution.close();
+            }
+        };
+    }
+
+    public static void recordCacheHit() {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.metrics.cacheHits.increment();
+        }
+    }
+
+    public static void recordCacheMiss() {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.metrics.cacheMisses.increment();
+        }
+    }
+
+    public static void recordApiCall(long nanos) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+
+        long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS.length && millis >= LATENCY_BUCKETS[bucket]) {
+            bucket++;
+        }
+        scope.metrics.apiLatencies.incrementAndGet(bucket);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public List<Stage> getStages() {
+        synchronized (stages) {
+            return new ArrayList<>(stages.values());
+        }
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getApiCalls() {
+        long calls = 0;
+        for (int i = 0; i < apiLatencies.length(); i++) {
+            calls += apiLatencies.get(i);
+        }
+        return calls;
+    }
+
+    public String toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("report", name);
+        json.addProperty("failed", failed);
+        json.addProperty("wallMillis", toMillis(wallNanos));
+
+        JsonArray stageArray = new JsonArray();
+        for (Stage stage: getStages()) {
+            JsonObject stageJson = new JsonObject();
+            stageJson.addProperty("name", stage.getName());
+            stageJson.addProperty("count", stage.getCount());
+            stageJson.addProperty("wallMillis", toMillis(stage.getWallNanos()));
+            stageJson.addProperty("cpuMillis", toMillis(stage.getCpuNanos()));
+            stageJson.addProperty("allocatedBytes", stage.getAllocatedBytes());
+            stageArray.add(stageJson);
+        }
+        json.add("stages", stageArray);
+
+        JsonObject cacheJson = new JsonObject();
+        cacheJson.addProperty("hits", getCacheHits());
+        cacheJson.addProperty("misses", getCacheMisses());
+        json.add("priceCache", cacheJson);
+
+        JsonObject latencyJson = new JsonObject();
+        for (int i = 0; i < apiLatencies.length(); i++) {
+            String bucket = i < LATENCY_BUCKETS.length ? "<" + LATENCY_BUCKETS[i] : ">=" + LATENCY_BUCKETS[i - 1];
+            latencyJson.addProperty(bucket, apiLatencies.get(i));
+        }
+        JsonObject apiJson = new JsonObject();
+        apiJson.addProperty("calls", getApiCalls());
+        apiJson.add("latencyMillis", latencyJson);
+        json.add("priceApi", apiJson);
+
+        return json.toString();
+    }
+
+    private Stage getStage(String stageName) {
+        synchronized (stages) {
+            return stages.computeIfAbsent(stageName, Stage::new);
+        }
+    }
+
+    private static void restore(Scope previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    private static long currentCpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long currentAllocatedBytes() {
+        return ALLOCATIONS != null && ALLOCATIONS.isThreadAllocatedMemorySupported() ?
+                ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static class Scope {
+        private final PipelineMetrics metrics;
+        private final Stage stage;
+
+        private Scope(PipelineMetrics metrics, Stage stage) {
+            this.metrics = metrics;
+            this.stage = stage;
+        }
+    }
+
+    // Binds the scope to a worker thread, its cpu time and allocations are added to the stage of the scope on close
+    private static class Attribution {
+        private final Scope scope;
+        private final Scope previous = CURRENT.get();
+        private final long cpu = currentCpuTime();
+        private final long allocated = currentAllocatedBytes();
+
+        private Attribution(Scope scope) {
+            this.scope = scope;
+            CURRENT.set(scope);
+        }
+
+        private void close() {
+            if (scope.stage != null) {
+                scope.stage.cpuNanos.add(currentCpuTime() - cpu);
+                scope.stage.allocatedBytes.add(currentAllocatedBytes() - allocated);
+            }
+            restore(previous);
+        }
+    }
+
+    public static class Stage {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder wallNanos = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getWallNanos() {
+            return wallNanos.sum();
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos.sum();
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes.sum();
+        }
+    }
+}
@@ -5,51 +5,107 @@ import org.mericoztiryaki.domain.model.constant.Currency;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.BinaryOperator;
 
 public class QuotesUtil {
 
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private static final BinaryOperator<BigDecimal> DIVIDE = (v1, v2) -> v1.divide(v2, 5, RoundingMode.HALF_UP);
+
     public static boolean isZero(Quotes q1) {
-        return q1.getValue().values().stream().anyMatch(BigDecimalUtil::isZero);
+        for (Currency c: CURRENCIES) {
+            BigDecimal v = q1.get(c);
+            if (v != null && BigDecimalUtil.isZero(v)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     // Quotes - BigDecimal Functions
     public static Quotes multiply(Quotes q1, BigDecimal constant) {
-        return new Quotes(applyToQuotes(q1.getValue(), e -> e.getValue().multiply(constant)));
+        return applyToQuotes(q1, constant, BigDecimal::multiply);
     }
     public static Quotes divide(Quotes q1, BigDecimal constant) {
-        return new Quotes(applyToQuotes(q1.getValue(), e -> e.getValue().divide(constant, 5, RoundingMode.HALF_UP)));
+        return applyToQuotes(q1, constant, DIVIDE);
     }
     public static Quotes add(Quotes q1, BigDecimal constant) {
-        return new Quotes(applyToQuotes(q1.getValue(), e -> e.getValue().add(constant)));
+        return applyToQuotes(q1, constant, BigDecimal::add);
     }
     public static Quotes subtract(Quotes q1, BigDecimal constant) {
-        return new Quotes(applyToQuotes(q1.getValue(), e -> e.getValue().subtract(constant)));
+        return applyToQuotes(q1, constant, BigDecimal::subtract);
     }
 
     // Quotes - Quotes Functions
     public static Quotes add(Quotes q1, Quotes q2) {
-        return new Quotes(applyToQuotes(q1.getValue(), e -> e.getValue().add(q2.getValue().get(e.getKey()))));
+        return applyToQuotes(q1, q2, BigDecimal::add);
     }
 
     public static Quotes subtract(Quotes q1, Quotes q2) {
-        return new Quotes(applyToQuotes(q1.getValue(), e -> e.getValue().subtract(q2.getValue().get(e.getKey()))));
+        return applyToQuotes(q1, q2, BigDecimal::subtract);
     }
 
     public static Quotes multiply(Quotes q1, Quotes q2) {
-        return new Quotes(applyToQuotes(q1.getValue(), e -> e.getValue().multiply(q2.getValue().get(e.getKey()))));
+        return applyToQuotes(q1, q2, BigDecimal::multiply);
     }
 
     public static Quotes divide(Quotes q1, Quotes q2) {
-        return new Quotes(applyToQuotes(q1.getValue(), e -> e.getValue().divide(q2.getValue().get(e.getKey()), 5, RoundingMode.HALF_UP)));
+        return applyToQuotes(q1, q2, DIVIDE);
+    }
+
+    // In-place functions, they modify and return the target. Target must be owned by the caller, Quotes.ZERO is read-only.
+    public static Quotes addTo(Quotes target, Quotes q2) {
+        for (Currency c: CURRENCIES) {
+            BigDecimal v = target.get(c);
+            if (v != null) {
+                target.set(c, v.add(q2.get(c)));
+            }
+        }
+        return target;
+    }
+
+    public static Quotes subtractFrom(Quotes target, Quotes q2) {
+        for (Currency c: CURRENCIES) {
+            BigDecimal v = target.get(c);
+            if (v != null) {
+                target.set(c, v.subtract(q2.get(c)));
+            }
+        }
+        return target;
+    }
+
+    // target += q2 * constant
+    public static Quotes addProductTo(Quotes target, Quotes q2, BigDecimal constant) {
+        for (Currency c: CURRENCIES) {
+            BigDecimal v = target.get(c);
+            if (v != null) {
+                target.set(c, v.add(q2.get(c).multiply(constant)));
+            }
+        }
+        return target;
+    }
+
+    private static Quotes applyToQuotes(Quotes q1, BigDecimal constant, BinaryOperator<BigDecimal> operator) {
+        Quotes result = new Quotes();
+        for (Currency c: CURRENCIES) {
+            BigDecimal v = q1.get(c);
+            if (v != null) {
+                result.set(c, operator.apply(v, constant));
+            }
+        }
+        return result;
     }
 
-    private static Map<Currency, BigDecimal> applyToQuotes(Map<Currency, BigDecimal> quotes,
-                                                           Function<Map.Entry<Currency, BigDecimal>, BigDecimal> valueMapper) {
-        return quotes.entrySet().stream()
-                .collect(Collectors.toMap(e -> e.getKey(), valueMapper));
+    private static Quotes applyToQuotes(Quotes q1, Quotes q2, BinaryOperator<BigDecimal> operator) {
+        Quotes result = new Quotes();
+        for (Currency c: CURRENCIES) {
+            BigDecimal v = q1.get(c);
+            if (v != null) {
+                result.set(c, operator.apply(v, q2.get(c)));
+            }
+        }
+        return result;
     }
 
-}
\ No newline at end of file
+}
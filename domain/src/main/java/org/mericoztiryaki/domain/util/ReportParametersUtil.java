@@ -11,7 +11,8 @@ import java.util.HashSet;
 public class ReportParametersUtil {
 
     public static ReportParameters validateReportRequest(ReportRequest reportRequest) throws ReportParametersException {
-        if (reportRequest.getTransactions() == null || reportRequest.getTransactions().isEmpty()) {
+        // Emptiness is checked while transactions are read
+        if (reportRequest.getTransactions() == null) {
             throw new ReportParametersException("Transactions must not be empty");
         }
 
@@ -5,6 +5,7 @@ import org.mericoztiryaki.domain.model.result.Report;
 
 public interface ReportWriter {
 
-    byte[] build(Report report, ReportParameters reportParameters);
+    // Writes the report to reportParameters.getOutputFileLocation()
+    void build(Report report, ReportParameters reportParameters);
 
 }
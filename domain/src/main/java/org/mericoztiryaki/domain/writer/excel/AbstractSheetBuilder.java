@@ -1,7 +1,9 @@
 package org.mericoztiryaki.domain.writer.excel;
 
 import lombok.Getter;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.mericoztiryaki.domain.model.ReportParameters;
 import org.mericoztiryaki.domain.model.constant.Currency;
 import org.mericoztiryaki.domain.model.constant.Period;
@@ -24,8 +26,13 @@ public abstract class AbstractSheetBuilder {
     private final List<Currency> sortedCurrencies;
     private final List<Period> sortedPeriods;
 
-    public AbstractSheetBuilder(Workbook workbook, Report report, ReportParameters parameters) {
-        this.excelConnector = new ExcelConnector(workbook, workbook.createSheet(getSheetName()));
+    public AbstractSheetBuilder(Workbook workbook, CellStyleRegistry styles, Report report, ReportParameters parameters) {
+        Sheet sheet = workbook.createSheet(getSheetName());
+        if (sheet instanceof SXSSFSheet && isRandomAccess()) {
+            // Keep all rows of the sheet in memory, flushed rows can't be revisited
+            ((SXSSFSheet) sheet).setRandomAccessWindowSize(-1);
+        }
+        this.excelConnector = new ExcelConnector(workbook, styles, sheet);
 
         this.report = report;
         this.parameters = parameters;
@@ -50,15 +57,27 @@ public abstract class AbstractSheetBuilder {
 
     public abstract void build();
 
+    // Sheets which move the row cursor backwards must return true
+    protected boolean isRandomAccess() {
+        return false;
+    }
+
     public void autoSizeAllColumns() {
-        for (int i=0; i<excelConnector.getColCursor().getBiggest(); i++) {
-            excelConnector.getSheet().autoSizeColumn(i);
-        }
+        autoSizeAllColumns(excelConnector.getColCursor().getBiggest());
     }
 
     public void autoSizeAllColumns(int count) {
+        Sheet sheet = excelConnector.getSheet();
         for (int i=0; i<count; i++) {
-            excelConnector.getSheet().autoSizeColumn(i);
+            if (sheet instanceof SXSSFSheet) {
+                // Streamed rows are already flushed, width is estimated from the values written
+                int width = excelConnector.getEstimatedColumnWidth(i);
+                if (width > 0) {
+                    sheet.setColumnWidth(i, width);
+                }
+            } else {
+                sheet.autoSizeColumn(i);
+            }
         }
     }
 }
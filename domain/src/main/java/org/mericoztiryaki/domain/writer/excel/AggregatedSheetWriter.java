@@ -15,8 +15,8 @@ import java.util.Optional;
 @Getter
 public class AggregatedSheetWriter extends AbstractSheetBuilder {
 
-    public AggregatedSheetWriter(Report report, ReportParameters parameters, Workbook workbook) {
-        super(workbook, report, parameters);
+    public AggregatedSheetWriter(Report report, ReportParameters parameters, Workbook workbook, CellStyleRegistry styles) {
+        super(workbook, styles, report, parameters);
     }
 
     @Override
@@ -0,0 +1,86 @@
+package org.mericoztiryaki.domain.writer.excel;
+
+import lombok.Data;
+import org.apache.poi.ss.usermodel.*;
+import org.mericoztiryaki.domain.model.constant.Currency;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Workbook wide cache of cell styles, equal cell formats share a single CellStyle
+public class CellStyleRegistry {
+
+    private final Workbook workbook;
+
+    private final Map<StyleKey, CellStyle> styles = new HashMap<>();
+
+    private final Map<String, Short> dataFormats = new HashMap<>();
+
+    private Font boldFont;
+
+    public CellStyleRegistry(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    public CellStyle getStyle(boolean bold, Currency currency, boolean percentage, HorizontalAlignment alignment,
+                              ColorSign colorSign) {
+        StyleKey key = new StyleKey(bold, currency, percentage, alignment, colorSign);
+
+        CellStyle cs = styles.get(key);
+        if (cs == null) {
+            cs = createStyle(key);
+            styles.put(key, cs);
+        }
+        return cs;
+    }
+
+    private CellStyle createStyle(StyleKey key) {
+        CellStyle cs = workbook.createCellStyle();
+
+        if (key.isBold()) {
+            cs.setFont(getBoldFont());
+        }
+
+        if (key.getCurrency() != null) {
+            cs.setDataFormat(getDataFormat(key.getCurrency().getPrefix() + "#,##0.0"));
+        } else if (key.isPercentage()) {
+            cs.setDataFormat(getDataFormat("0.00%"));
+        }
+
+        if (key.getAlignment() != null) {
+            cs.setAlignment(key.getAlignment());
+        }
+
+        if (key.getColorSign() != null) {
+            cs.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            cs.setFillForegroundColor(key.getColorSign() == ColorSign.NEGATIVE ? IndexedColors.ORANGE.index : IndexedColors.LIME.index);
+        }
+
+        return cs;
+    }
+
+    private Font getBoldFont() {
+        if (boldFont == null) {
+            boldFont = workbook.createFont();
+            boldFont.setBold(true);
+        }
+        return boldFont;
+    }
+
+    private short getDataFormat(String format) {
+        return dataFormats.computeIfAbsent(format, f -> workbook.createDataFormat().getFormat(f));
+    }
+
+    public enum ColorSign {
+        NEGATIVE, POSITIVE
+    }
+
+    @Data
+    private static class StyleKey {
+        private final boolean bold;
+        private final Currency currency;
+        private final boolean percentage;
+        private final HorizontalAlignment alignment;
+        private final ColorSign colorSign;
+    }
+}
@@ -19,8 +19,8 @@ public class DetailedAggregatedSheetWriter extends AbstractSheetBuilder {
 
     private final List<String> symbols;
 
-    public DetailedAggregatedSheetWriter(Report report, ReportParameters parameters, Workbook workbook) {
-        super(workbook, report, parameters);
+    public DetailedAggregatedSheetWriter(Report report, ReportParameters parameters, Workbook workbook, CellStyleRegistry styles) {
+        super(workbook, styles, report, parameters);
 
         this.symbols = getSortedInstrumentTypes().stream()
                 .map(instrumentType -> getReport().getAggregatedResult().getChildren().get(instrumentType))
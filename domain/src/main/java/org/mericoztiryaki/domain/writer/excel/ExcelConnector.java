@@ -2,15 +2,23 @@ package org.mericoztiryaki.domain.writer.excel;
 
 import lombok.Getter;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.mericoztiryaki.domain.model.constant.Currency;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Getter
 public class ExcelConnector {
 
     private final Workbook workbook;
+    private final CellStyleRegistry styles;
     private final Sheet sheet;
 
     private final Cursor rowCursor;
@@ -19,8 +27,15 @@ public class ExcelConnector {
     private Row lastRow;
     private Cell lastCell;
 
-    public ExcelConnector(Workbook workbook, Sheet sheet) {
+    // Longest displayed text per column, in characters
+    private int[] columnLengths = new int[16];
+
+    // Titles and headers may be merged later, they are only counted if they are not part of a merged region
+    private final Map<CellAddress, Integer> headerLengths = new HashMap<>();
+
+    public ExcelConnector(Workbook workbook, CellStyleRegistry styles, Sheet sheet) {
         this.workbook = workbook;
+        this.styles = styles;
         this.sheet = sheet;
         this.rowCursor = new Cursor();
         this.colCursor = new Cursor();
@@ -55,6 +70,39 @@ public class ExcelConnector {
         return this.createCell(colCursor.next());
     }
 
+    // Column width in units of 1/256th of a character, as expected by Sheet.setColumnWidth. 0 for empty columns.
+    public int getEstimatedColumnWidth(int column) {
+        if (!headerLengths.isEmpty()) {
+            List<CellRangeAddress> mergedRegions = sheet.getMergedRegions();
+            headerLengths.forEach((address, length) -> {
+                if (mergedRegions.stream().noneMatch(r -> r.isInRange(address))) {
+                    trackLength(address.getColumn(), length);
+                }
+            });
+            headerLengths.clear();
+        }
+
+        int length = column < columnLengths.length ? columnLengths[column] : 0;
+        return length == 0 ? 0 : Math.min(length + 2, 255) * 256;
+    }
+
+    private void trackLength(Cell cell, int length, boolean header) {
+        if (header) {
+            headerLengths.put(cell.getAddress(), length);
+        } else {
+            trackLength(cell.getColumnIndex(), length);
+        }
+    }
+
+    private void trackLength(int column, int length) {
+        if (column >= columnLengths.length) {
+            columnLengths = Arrays.copyOf(columnLengths, Math.max(column + 1, columnLengths.length * 2));
+        }
+        if (length > columnLengths[column]) {
+            columnLengths[column] = length;
+        }
+    }
+
     @Getter
     public static class Cursor {
         private int initialIndex;
@@ -176,37 +224,42 @@ public class ExcelConnector {
                 cell.setCellValue(this.valueLocalDateTime);
             }
 
-            CellStyle cs = workbook.createCellStyle();
-            cell.setCellStyle(cs);
-
-            if (isBold) {
-                Font font = workbook.createFont();
-                font.setBold(true);
-
-                cs.setFont(font);
-            }
-
-            if (currency != null) {
-                DataFormat df = workbook.createDataFormat();
-                cs.setDataFormat(df.getFormat(currency.getPrefix() + "#,##0.0"));
-            } else if (percentage) {
-                cs.setDataFormat(workbook.createDataFormat().getFormat("0.00%"));
-            }
-
-            if (alignment != null) {
-                cs.setAlignment(alignment);
-            }
+            trackLength(cell, displayLength(), isBold);
 
+            CellStyleRegistry.ColorSign colorSign = null;
             if (colorFormat == ColorFormat.RED_GREEN_FORMAT) {
-                setGreenBlueBackground(cs);
+                colorSign = this.valueBigDecimal.doubleValue() < 0
+                        ? CellStyleRegistry.ColorSign.NEGATIVE : CellStyleRegistry.ColorSign.POSITIVE;
             }
 
+            cell.setCellStyle(styles.getStyle(isBold, currency, percentage, alignment, colorSign));
+
             return cell;
         }
 
-        private void setGreenBlueBackground(CellStyle cellStyle) {
-            cellStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            cellStyle.setFillForegroundColor(this.valueBigDecimal.doubleValue() < 0 ? IndexedColors.ORANGE.index : IndexedColors.LIME.index);
+        // Approximates the length of the formatted value
+        private int displayLength() {
+            int length = 0;
+            if (valueStr != null) {
+                length = valueStr.length();
+            } else if (valueBigDecimal != null) {
+                if (percentage) {
+                    length = valueBigDecimal.movePointRight(2).setScale(2, RoundingMode.HALF_UP).toPlainString().length() + 1;
+                } else if (currency != null) {
+                    String integerPart = valueBigDecimal.setScale(0, RoundingMode.DOWN).abs().toPlainString();
+                    length = currency.getPrefix().length() + integerPart.length() + (integerPart.length() - 1) / 3 + 2;
+                    if (valueBigDecimal.signum() < 0) {
+                        length++;
+                    }
+                } else {
+                    // General format shows at most 11 characters
+                    length = Math.min(valueBigDecimal.stripTrailingZeros().toPlainString().length(), 11);
+                }
+            } else if (valueLocalDateTime != null) {
+                length = 19;
+            }
+            // Bold glyphs are wider
+            return isBold ? length + length / 10 + 1 : length;
         }
     }
 
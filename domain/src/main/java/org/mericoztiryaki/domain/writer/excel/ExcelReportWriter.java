@@ -1,58 +1,109 @@
 package org.mericoztiryaki.domain.writer.excel;
 
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.mericoztiryaki.domain.exception.ReportWriterException;
 import org.mericoztiryaki.domain.model.ReportParameters;
 import org.mericoztiryaki.domain.model.result.Report;
+import org.mericoztiryaki.domain.util.Environment;
+import org.mericoztiryaki.domain.util.PipelineMetrics;
 import org.mericoztiryaki.domain.writer.ReportWriter;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 public class ExcelReportWriter implements ReportWriter {
 
     @Override
-    public byte[] build(Report report, ReportParameters reportParameters) throws ReportWriterException {
-        Workbook workbook  = new XSSFWorkbook();
+    public void build(Report report, ReportParameters reportParameters) throws ReportWriterException {
+        // Large reports are streamed, only a window of rows per sheet is kept in memory
+        boolean streaming = report.getTransactions().size() >= Environment.EXCEL_STREAMING_THRESHOLD;
+        build(report, reportParameters, streaming ? createStreamingWorkbook() : new XSSFWorkbook());
+    }
+
+    void build(Report report, ReportParameters reportParameters, Workbook workbook) {
+        try {
+            CellStyleRegistry styles = new CellStyleRegistry(workbook);
 
-        AbstractSheetBuilder aggregatedSheetWriter = new AggregatedSheetWriter(report, reportParameters, workbook);
-        aggregatedSheetWriter.build();
+            AbstractSheetBuilder aggregatedSheetWriter = new AggregatedSheetWriter(report, reportParameters, workbook, styles);
+            build(aggregatedSheetWriter);
 
-        AbstractSheetBuilder detailedAggregatedSheetWriter = new DetailedAggregatedSheetWriter(report, reportParameters, workbook);
-        detailedAggregatedSheetWriter.build();
+            AbstractSheetBuilder detailedAggregatedSheetWriter = new DetailedAggregatedSheetWriter(report, reportParameters, workbook, styles);
+            build(detailedAggregatedSheetWriter);
 
-        AbstractSheetBuilder openPositionsSheetBuilder = new OpenPositionsSheetBuilder(report, reportParameters, workbook);
-        openPositionsSheetBuilder.build();
+            AbstractSheetBuilder openPositionsSheetBuilder = new OpenPositionsSheetBuilder(report, reportParameters, workbook, styles);
+            build(openPositionsSheetBuilder);
 
-        AbstractSheetBuilder pnlHistorySheetBuilder = new HistoricalAnalyzeSheetBuilder(report, reportParameters, workbook);
-        pnlHistorySheetBuilder.build();
+            AbstractSheetBuilder pnlHistorySheetBuilder = new HistoricalAnalyzeSheetBuilder(report, reportParameters, workbook, styles);
+            build(pnlHistorySheetBuilder);
 
-        AbstractSheetBuilder transactionSheetBuilder = new TransactionSheetBuilder(workbook, report, reportParameters);
-        transactionSheetBuilder.build();
+            AbstractSheetBuilder transactionSheetBuilder = new TransactionSheetBuilder(workbook, styles, report, reportParameters);
+            build(transactionSheetBuilder);
 
-        byte[] content = convertToByteArray(workbook);
+            PipelineMetrics.measure("workbook save", () -> write(workbook, reportParameters.getOutputFileLocation()));
+        } catch (RuntimeException | Error e) {
+            // A failing close must not hide the failure of the build
+            try {
+                close(workbook);
+            } catch (RuntimeException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+        close(workbook);
+    }
+
+    private void build(AbstractSheetBuilder sheetBuilder) {
+        PipelineMetrics.measure("sheet " + sheetBuilder.getSheetName(), sheetBuilder::build);
+    }
 
+    private SXSSFWorkbook createStreamingWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(Environment.EXCEL_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    // Workbook is written to a temporary file which replaces the output when it is complete, so a failing write
+    // doesn't leave a partial report or destroy the previous one
+    private void write(Workbook workbook, String outputFileLocation) {
+        Path path = Paths.get(outputFileLocation).toAbsolutePath();
+        Path tempPath = null;
         try {
-            Files.write(Paths.get(reportParameters.getOutputFileLocation()), content);
+            tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = Channels.newOutputStream(channel)) {
+                workbook.write(out);
+            }
+
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             throw new ReportWriterException(e);
+        } finally {
+            if (tempPath != null) {
+                new File(tempPath.toString()).delete();
+            }
         }
-
-        return content;
     }
 
-    private byte[] convertToByteArray(Workbook workbook) {
+    private void close(Workbook workbook) {
         try {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            workbook.write(bos);
+            if (workbook instanceof SXSSFWorkbook) {
+                // Removes temporary sheet files
+                ((SXSSFWorkbook) workbook).dispose();
+            }
             workbook.close();
-
-            return bos.toByteArray();
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new ReportWriterException(e);
         }
     }
 
@@ -17,8 +17,8 @@ import java.util.stream.Collectors;
 
 public class HistoricalAnalyzeSheetBuilder extends AbstractSheetBuilder {
 
-    public HistoricalAnalyzeSheetBuilder(Report report, ReportParameters parameters, Workbook workbook) {
-        super(workbook, report, parameters);
+    public HistoricalAnalyzeSheetBuilder(Report report, ReportParameters parameters, Workbook workbook, CellStyleRegistry styles) {
+        super(workbook, styles, report, parameters);
     }
 
     @Override
@@ -26,6 +26,11 @@ public class HistoricalAnalyzeSheetBuilder extends AbstractSheetBuilder {
         return "Historical Analyze";
     }
 
+    @Override
+    protected boolean isRandomAccess() {
+        return true;
+    }
+
     @Override
     public void build() {
         List<PnlHistoryUnit> sortedHistoryUnits = getParameters().getPnlHistoryUnits().stream()
@@ -19,8 +19,8 @@ import java.util.stream.Collectors;
 
 public class OpenPositionsSheetBuilder extends AbstractSheetBuilder {
 
-    public OpenPositionsSheetBuilder(Report report, ReportParameters parameters, Workbook workbook) {
-        super(workbook, report, parameters);
+    public OpenPositionsSheetBuilder(Report report, ReportParameters parameters, Workbook workbook, CellStyleRegistry styles) {
+        super(workbook, styles, report, parameters);
     }
 
     @Override
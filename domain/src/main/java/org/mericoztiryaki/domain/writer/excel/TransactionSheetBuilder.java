@@ -8,8 +8,8 @@ import java.text.MessageFormat;
 
 public class TransactionSheetBuilder extends AbstractSheetBuilder {
 
-    public TransactionSheetBuilder(Workbook workbook, Report report, ReportParameters parameters) {
-        super(workbook, report, parameters);
+    public TransactionSheetBuilder(Workbook workbook, CellStyleRegistry styles, Report report, ReportParameters parameters) {
+        super(workbook, styles, report, parameters);
     }
 
     @Override
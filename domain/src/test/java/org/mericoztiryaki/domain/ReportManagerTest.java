@@ -0,0 +1,136 @@
+package org.mericoztiryaki.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.ReportRequest;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.port.PriceSource;
+import org.mericoztiryaki.domain.service.impl.PortfolioFixture;
+import org.mericoztiryaki.domain.service.impl.PriceService;
+import org.mericoztiryaki.domain.service.impl.ReportService;
+import org.mericoztiryaki.domain.service.impl.TransactionService;
+import org.mericoztiryaki.domain.util.PipelineMetrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportManagerTest {
+
+    private Path directory;
+
+    // Price windows asked from the source, as "type symbol start end"
+    private final List<String> priceCalls = Collections.synchronizedList(new ArrayList<>());
+
+    // Price windows of this symbol fail
+    private volatile String failingSymbol;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("report-manager");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void failedReportDoesNotStopBatch() {
+        List<PipelineMetrics> metrics = Collections.synchronizedList(new ArrayList<>());
+        ReportManager reportManager = manager("batch");
+        reportManager.setMetricsSink(metrics::add);
+
+        ReportRequest empty = request("empty", 3);
+        empty.setTransactions(Stream::empty);
+
+        assertEquals(1, reportManager.generateReports(List.of(request("first", 1), empty, request("second", 2))));
+        assertTrue(Files.exists(directory.resolve("first.xlsx")));
+        assertTrue(Files.exists(directory.resolve("second.xlsx")));
+        assertFalse(Files.exists(directory.resolve("empty.xlsx")));
+
+        // Every report and the shared prices are published
+        Map<String, Boolean> failures = metrics.stream()
+                .collect(Collectors.toMap(PipelineMetrics::getName, PipelineMetrics::isFailed));
+        assertEquals(Map.of(directory.resolve("first.xlsx").toString(), false,
+                directory.resolve("empty.xlsx").toString(), true,
+                directory.resolve("second.xlsx").toString(), false,
+                "batch prices", false), failures);
+    }
+
+    @Test
+    public void pricesAreFetchedOnceForBatch() {
+        manager("single").generateReports(List.of(request("single", 1)));
+        Set<String> singleCalls = Set.copyOf(priceCalls);
+        priceCalls.clear();
+
+        // Portfolios of the same symbols and days need the same price windows as a single one
+        assertEquals(0, manager("batch").generateReports(List.of(request("first", 1), request("second", 2),
+                request("third", 3))));
+        assertEquals(singleCalls.size(), priceCalls.size());
+        assertEquals(singleCalls, Set.copyOf(priceCalls));
+    }
+
+    @Test
+    public void failingSymbolOnlyFailsItsReport() {
+        List<PipelineMetrics> metrics = Collections.synchronizedList(new ArrayList<>());
+        ReportManager reportManager = manager("failing");
+        reportManager.setMetricsSink(metrics::add);
+        failingSymbol = "SYM5";
+
+        // Only the second portfolio holds the failing symbol
+        assertEquals(1, reportManager.generateReports(List.of(request("first", 1, 5), request("second", 2, 6),
+                request("third", 3, 5))));
+        assertTrue(Files.exists(directory.resolve("first.xlsx")));
+        assertFalse(Files.exists(directory.resolve("second.xlsx")));
+        assertTrue(Files.exists(directory.resolve("third.xlsx")));
+
+        Map<String, Boolean> failures = metrics.stream()
+                .collect(Collectors.toMap(PipelineMetrics::getName, PipelineMetrics::isFailed));
+        assertEquals(Map.of(directory.resolve("first.xlsx").toString(), false,
+                directory.resolve("second.xlsx").toString(), true,
+                directory.resolve("third.xlsx").toString(), false,
+                "batch prices", true), failures);
+    }
+
+    private ReportManager manager(String name) {
+        PriceSource fixture = PortfolioFixture.priceSource(6);
+        PriceSource source = (type, symbol, start, end) -> {
+            if (symbol.equals(failingSymbol)) {
+                throw new IllegalStateException("Unknown symbol: " + symbol);
+            }
+            priceCalls.add(type + " " + symbol + " " + start + " " + end);
+            return fixture.getPriceWindow(type, symbol, start, end);
+        };
+        PriceService priceService = new PriceService(source, directory.resolve(name + ".bin").toString());
+        return new ReportManager(new ReportService(priceService, new TransactionService(priceService)));
+    }
+
+    private ReportRequest request(String name, long seed) {
+        return request(name, seed, 6);
+    }
+
+    private ReportRequest request(String name, long seed, int symbolCount) {
+        List<TransactionDefinition> definitions = PortfolioFixture.definitions(300, symbolCount, 100, seed);
+        ReportRequest request = ReportRequest.getDefaultReportRequest();
+        request.setInputFileLocation(name + ".csv");
+        request.setTransactions(definitions::stream);
+        request.setOutputFileLocation(directory.resolve(name + ".xlsx").toString());
+        return request;
+    }
+}
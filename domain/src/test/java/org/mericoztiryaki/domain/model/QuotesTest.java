@@ -0,0 +1,73 @@
+package org.mericoztiryaki.domain.model;
+
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.constant.Currency;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class QuotesTest {
+
+    @Test
+    public void zeroCanNotBeModified() {
+        assertThrows(UnsupportedOperationException.class, () -> Quotes.ZERO.set(Currency.USD, BigDecimal.ONE));
+        assertThrows(UnsupportedOperationException.class, () -> Quotes.ZERO.setValue(Map.of(Currency.USD, BigDecimal.ONE)));
+        assertThrows(UnsupportedOperationException.class, () -> Quotes.ZERO.getValue().put(Currency.USD, BigDecimal.ONE));
+        assertThrows(UnsupportedOperationException.class, () -> Quotes.ZERO.getValue().remove(Currency.USD));
+
+        Iterator<Map.Entry<Currency, BigDecimal>> iterator = Quotes.ZERO.getValue().entrySet().iterator();
+        iterator.next();
+        assertThrows(UnsupportedOperationException.class, iterator::remove);
+
+        assertEquals(Quotes.zero(), Quotes.ZERO);
+    }
+
+    @Test
+    public void zeroAndCopyAreModifiable() {
+        Quotes zero = Quotes.zero();
+        assertNotSame(zero, Quotes.zero());
+        zero.set(Currency.USD, BigDecimal.ONE);
+        assertEquals(BigDecimal.ONE, zero.get(Currency.USD));
+
+        Quotes copy = Quotes.ZERO.copy();
+        copy.getValue().put(Currency.TRY, BigDecimal.TEN);
+        assertEquals(BigDecimal.TEN, copy.get(Currency.TRY));
+        assertEquals(BigDecimal.ZERO, Quotes.ZERO.get(Currency.TRY));
+    }
+
+    @Test
+    public void readOnlyQuotesAreCopies() {
+        Quotes quotes = Quotes.zero();
+        Quotes readOnly = Quotes.readOnly(quotes);
+        assertThrows(UnsupportedOperationException.class, () -> readOnly.set(Currency.USD, BigDecimal.ONE));
+        assertSame(readOnly, Quotes.readOnly(readOnly));
+        assertSame(Quotes.ZERO, Quotes.readOnly(Quotes.ZERO));
+
+        // Changes of the original are not seen
+        quotes.set(Currency.USD, BigDecimal.ONE);
+        assertEquals(BigDecimal.ZERO, readOnly.get(Currency.USD));
+        assertEquals(Quotes.zero(), readOnly);
+    }
+
+    @Test
+    public void valueViewWritesThrough() {
+        Quotes quotes = new Quotes();
+        assertFalse(quotes.getValue().containsKey(Currency.EUR));
+
+        quotes.getValue().put(Currency.EUR, BigDecimal.ONE);
+        assertEquals(BigDecimal.ONE, quotes.get(Currency.EUR));
+        assertEquals(1, quotes.getValue().size());
+
+        quotes.getValue().remove(Currency.EUR);
+        assertNull(quotes.get(Currency.EUR));
+        assertEquals(0, quotes.getValue().size());
+    }
+}
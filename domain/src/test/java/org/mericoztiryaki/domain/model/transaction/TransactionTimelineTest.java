@@ -0,0 +1,95 @@
+package org.mericoztiryaki.domain.model.transaction;
+
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.constant.TransactionType;
+import org.mericoztiryaki.domain.util.QuotesUtil;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mericoztiryaki.domain.service.impl.PortfolioFixture.assertSameValues;
+import static org.mericoztiryaki.domain.service.impl.PortfolioFixture.transactions;
+
+public class TransactionTimelineTest {
+
+    private static final Instrument AAA = new Instrument(InstrumentType.BIST, "AAA");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 4);
+    private static final int DAY_COUNT = 120;
+
+    @Test
+    public void totalsAreSameAsScanningTransactions() {
+        List<ITransaction> transactions = transactions(new Random(3), AAA, FIRST_DAY, DAY_COUNT);
+        TransactionTimeline timeline = new TransactionTimeline(transactions);
+
+        assertEquals(transactions.get(0).getDate().toLocalDate(), timeline.getFirstDay());
+        assertEquals(transactions.get(transactions.size() - 1).getDate().toLocalDate(), timeline.getLastDay());
+
+        for (LocalDate day = FIRST_DAY.minusDays(3); day.isBefore(timeline.getLastDay().plusDays(3)); day = day.plusDays(1)) {
+            LocalDate end = day;
+            List<ITransaction> untilDay = transactions.stream()
+                    .filter(t -> !t.getDate().toLocalDate().isAfter(end))
+                    .collect(Collectors.toList());
+
+            UnifiedTransaction expected = new UnifiedTransaction(day.atStartOfDay(), AAA);
+            Quotes buyCost = Quotes.zero();
+            Quotes sellIncome = Quotes.zero();
+            for (ITransaction t: untilDay) {
+                expected.addTransaction(t);
+                QuotesUtil.addProductTo(t.getTransactionType() == TransactionType.BUY ? buyCost : sellIncome,
+                        t.getPurchasePrice(), t.getAmount());
+            }
+
+            assertEquals(untilDay.size(), timeline.countUntil(day), day.toString());
+            assertEquals(0, expected.getAmount().compareTo(timeline.getAmountUntil(day)), day.toString());
+            assertSameValues(buyCost, timeline.getBuyCostUntil(day));
+            assertSameValues(sellIncome, timeline.getSellIncomeUntil(day));
+
+            UnifiedTransaction unified = timeline.unifyUntil(day);
+            assertEquals(day.atStartOfDay(), unified.getDate());
+            assertEquals(0, expected.getAmount().compareTo(unified.getAmount()), day.toString());
+            assertSameValues(expected.getCommissionPrice(), unified.getCommissionPrice());
+            assertEquals(untilDay, unified.getUnifiedTransactions());
+        }
+    }
+
+    @Test
+    public void transactionsBetweenAreAfterStartUntilEndOfEnd() {
+        List<ITransaction> transactions = transactions(new Random(5), AAA, FIRST_DAY, DAY_COUNT);
+        TransactionTimeline timeline = new TransactionTimeline(transactions);
+
+        Random random = new Random(9);
+        for (int i = 0; i < 200; i++) {
+            LocalDate start = FIRST_DAY.plusDays(random.nextInt(DAY_COUNT) - 10);
+            LocalDate end = start.plusDays(random.nextInt(40) - 5);
+
+            List<ITransaction> expected = transactions.stream()
+                    .filter(t -> t.getDate().toLocalDate().isAfter(start))
+                    .filter(t -> !t.getDate().toLocalDate().isAfter(end))
+                    .collect(Collectors.toList());
+            assertEquals(expected, timeline.getTransactionsBetween(start, end), start + " " + end);
+        }
+    }
+
+    @Test
+    public void unifiedTransactionDoesNotChangeTimeline() {
+        List<ITransaction> transactions = transactions(new Random(7), AAA, FIRST_DAY, DAY_COUNT);
+        TransactionTimeline timeline = new TransactionTimeline(transactions);
+        LocalDate day = FIRST_DAY.plusDays(20);
+        int count = timeline.countUntil(day);
+        List<ITransaction> copy = new ArrayList<>(transactions);
+
+        UnifiedTransaction unified = timeline.unifyUntil(day);
+        unified.addTransaction(transactions.get(transactions.size() - 1));
+
+        assertEquals(copy, timeline.getTransactions());
+        assertEquals(count, timeline.countUntil(day));
+        assertEquals(count + 1, unified.getUnifiedTransactions().size());
+    }
+}
@@ -0,0 +1,111 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.constant.TransactionType;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.Transaction;
+import org.mericoztiryaki.domain.util.QuotesUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mericoztiryaki.domain.service.impl.PortfolioFixture.quotes;
+
+public class AnalyzerTest {
+
+    private static final Instrument AAA = new Instrument(InstrumentType.BIST, "AAA");
+
+    @Test
+    public void resultsAreReadOnly() {
+        List<ITransaction> open = List.of(
+                transaction(TransactionType.BUY, "10", "5"),
+                transaction(TransactionType.SELL, "4", "6"));
+        Analyzer analyzer = new Analyzer(open, () -> quotes("8"));
+
+        List<Quotes> results = List.of(analyzer.calculateInitialValue(), analyzer.calculateTotalValue(),
+                analyzer.calculatePNL(), analyzer.calculateROI(), analyzer.calculateUnitCost(),
+                analyzer.getTotalCost(), analyzer.getTotalIncome());
+        for (Quotes result: results) {
+            assertThrows(UnsupportedOperationException.class, () -> QuotesUtil.addTo(result, quotes("1")));
+            assertThrows(UnsupportedOperationException.class, () -> result.getValue().remove(Currency.TRY));
+        }
+        assertEquals(0, new BigDecimal("22").compareTo(analyzer.calculatePNL().get(Currency.TRY)));
+        assertEquals(0, new BigDecimal("50").compareTo(analyzer.getTotalCost().get(Currency.TRY)));
+
+        // Results are still usable as the operands of the accumulators
+        Quotes sum = QuotesUtil.addTo(Quotes.zero(), analyzer.calculatePNL());
+        assertEquals(0, new BigDecimal("22").compareTo(sum.get(Currency.TRY)));
+
+        // Zero results of a closed position share Quotes.ZERO
+        Analyzer closed = new Analyzer(List.of(
+                transaction(TransactionType.BUY, "10", "5"),
+                transaction(TransactionType.SELL, "10", "6")), () -> null);
+        assertSame(Quotes.ZERO, closed.calculateTotalValue());
+        assertSame(Quotes.ZERO, closed.calculateInitialValue());
+    }
+
+    @Test
+    public void metricsAreCalculatedOnce() {
+        List<ITransaction> open = List.of(
+                transaction(TransactionType.BUY, "10", "5"),
+                transaction(TransactionType.SELL, "4", "6"));
+        AtomicInteger priceCalls = new AtomicInteger();
+
+        Analyzer analyzer = new Analyzer(open, () -> {
+            priceCalls.incrementAndGet();
+            return quotes("8");
+        });
+        assertEquals(0, priceCalls.get());
+
+        Quotes pnl = analyzer.calculatePNL();
+        assertSame(pnl, analyzer.calculatePNL());
+        assertSame(analyzer.calculateTotalValue(), analyzer.calculateTotalValue());
+        assertSame(analyzer.calculateROI(), analyzer.calculateROI());
+        assertSame(analyzer.calculateUnitCost(), analyzer.calculateUnitCost());
+        assertEquals(1, priceCalls.get());
+
+        // 24 + 6 * 8 - 50
+        assertEquals(0, new BigDecimal("22").compareTo(pnl.get(Currency.TRY)));
+        assertEquals(0, new BigDecimal("0.44").compareTo(analyzer.calculateROI().get(Currency.USD)));
+    }
+
+    @Test
+    public void sharedPriceIsLookedUpOnceAndOnlyForOpenPositions() {
+        FakePriceService priceService = new FakePriceService();
+        LocalDate day = LocalDate.of(2021, 1, 8);
+        priceService.put(AAA, day, quotes("8"));
+
+        Supplier<Quotes> closedPrice = Analyzer.sharedPrice(priceService.getPriceSeries(AAA, Set.of()), day);
+        List<ITransaction> closed = List.of(
+                transaction(TransactionType.BUY, "10", "5"),
+                transaction(TransactionType.SELL, "10", "6"));
+        new Analyzer(closed, closedPrice).calculatePNL();
+        new Analyzer(closed, closedPrice).calculateTotalValue();
+        assertTrue(priceService.getCalls().isEmpty());
+
+        Supplier<Quotes> openPrice = Analyzer.sharedPrice(priceService.getPriceSeries(AAA, Set.of()), day);
+        List<ITransaction> open = List.of(transaction(TransactionType.BUY, "10", "5"));
+        Quotes allPnl = new Analyzer(open, openPrice).calculatePNL();
+        Quotes periodPnl = new Analyzer(open, openPrice).calculatePNL();
+        assertEquals(allPnl, periodPnl);
+        assertEquals(List.of("AAA " + day), priceService.getCalls());
+    }
+
+    private static ITransaction transaction(TransactionType type, String amount, String price) {
+        return new Transaction(LocalDateTime.of(2021, 1, 4, 10, 0), AAA, type, new BigDecimal(amount),
+                quotes(price), Quotes.zero(), Currency.TRY);
+    }
+}
@@ -0,0 +1,64 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.mericoztiryaki.domain.model.CacheStats;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.service.IPriceService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Serves the prices put to it from memory and records the asked prices
+class FakePriceService implements IPriceService {
+
+    private final Map<Instrument, Map<LocalDate, Quotes>> prices = new ConcurrentHashMap<>();
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    void put(Instrument instrument, LocalDate day, Quotes quotes) {
+        prices.computeIfAbsent(instrument, (i) -> new ConcurrentHashMap<>()).put(day, quotes);
+    }
+
+    List<String> getCalls() {
+        synchronized (calls) {
+            return new ArrayList<>(calls);
+        }
+    }
+
+    @Override
+    public void prefetchPrices(Map<Instrument, Set<LocalDate>> requiredDates) {
+    }
+
+    @Override
+    public Quotes getPrice(Instrument instrument, LocalDate date) {
+        calls.add(instrument.getSymbol() + " " + date);
+        return prices.getOrDefault(instrument, Collections.emptyMap()).get(date);
+    }
+
+    @Override
+    public PriceSeries getPriceSeries(Instrument instrument, Collection<LocalDate> dates) {
+        return new PriceSeries(this, instrument, dates);
+    }
+
+    @Override
+    public Quotes calculateExchangeRates(LocalDate date, BigDecimal price, Currency source) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getPriceVersion(Collection<Instrument> instruments) {
+        return 0;
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,44 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Price;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.port.PriceSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Answers price windows from the prices put to it and records the asked windows
+class FakePriceSource implements PriceSource {
+
+    private final Map<Instrument, ConcurrentSkipListMap<LocalDate, Quotes>> prices = new ConcurrentHashMap<>();
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    void put(Instrument instrument, LocalDate day, Quotes quotes) {
+        prices.computeIfAbsent(instrument, (i) -> new ConcurrentSkipListMap<>()).put(day, quotes);
+    }
+
+    List<String> getCalls() {
+        synchronized (calls) {
+            return new ArrayList<>(calls);
+        }
+    }
+
+    @Override
+    public List<Price> getPriceWindow(InstrumentType instrumentType, String symbol, LocalDate start, LocalDate end) {
+        calls.add(instrumentType + " " + symbol + " " + start + " " + end);
+
+        List<Price> window = new ArrayList<>();
+        ConcurrentSkipListMap<LocalDate, Quotes> instrumentPrices = prices.get(new Instrument(instrumentType, symbol));
+        if (instrumentPrices != null) {
+            instrumentPrices.subMap(start, true, end, true).forEach((day, quotes) -> window.add(new Price(day, quotes)));
+        }
+        return window;
+    }
+}
@@ -0,0 +1,125 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionTimeline;
+import org.mericoztiryaki.domain.model.transaction.UnifiedTransaction;
+import org.mericoztiryaki.domain.util.BigDecimalUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class HistoricalAnalyzerTest {
+
+    private static final Instrument AAA = new Instrument(InstrumentType.BIST, "AAA");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 4);
+    private static final int DAY_COUNT = 180;
+
+    private Path directory;
+    private PriceService priceService;
+
+    @BeforeEach
+    public void createPriceService() throws IOException {
+        directory = Files.createTempDirectory("historical-analyzer");
+
+        FakePriceSource source = new FakePriceSource();
+        Random random = new Random(7);
+        for (LocalDate day = FIRST_DAY.minusDays(60); day.isBefore(FIRST_DAY.plusDays(DAY_COUNT + 60)); day = day.plusDays(1)) {
+            source.put(AAA, day, PortfolioFixture.quotes(random));
+        }
+        priceService = new PriceService(source, directory.resolve("prices.bin").toString());
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void windowResultsAreSameAsAnalyzerOverWindowTransactions() {
+        Random random = new Random(42);
+        for (int run = 0; run < 5; run++) {
+            List<ITransaction> transactions = PortfolioFixture.transactions(random, AAA, FIRST_DAY, DAY_COUNT);
+            TransactionTimeline timeline = new TransactionService(priceService).createTimeline(transactions);
+
+            List<Pair<LocalDate, LocalDate>> windows = createWindows(random);
+            Set<LocalDate> dates = new HashSet<>();
+            windows.forEach(w -> {
+                dates.add(w.getLeft());
+                dates.add(w.getRight());
+            });
+            PriceSeries prices = new PriceSeries(priceService, AAA, dates);
+            HistoricalAnalyzer historicalAnalyzer = new HistoricalAnalyzer(prices, timeline);
+
+            for (Pair<LocalDate, LocalDate> window: windows) {
+                HistoricalAnalyzer.WindowResult result = historicalAnalyzer.analyzeWindow(window.getLeft(), window.getRight());
+
+                // Transactions of the window as they were split before the timeline
+                Analyzer expected = new Analyzer(splitByWindow(transactions, window.getLeft(), window.getRight(), prices),
+                        () -> prices.get(window.getRight()));
+                PortfolioFixture.assertSameValues(expected.calculateInitialValue(), result.getInitialValue(), window);
+                PortfolioFixture.assertSameValues(expected.calculateTotalValue(), result.getTotalValue(), window);
+                PortfolioFixture.assertSameValues(expected.calculatePNL(), result.getPnl(), window);
+
+                Analyzer windowAnalyzer = new Analyzer(new TransactionService(priceService)
+                        .createTransactionSetByWindow(transactions, window.getLeft(), window.getRight()),
+                        () -> prices.get(window.getRight()));
+                PortfolioFixture.assertSameValues(windowAnalyzer.calculatePNL(), result.getPnl(), window);
+            }
+        }
+    }
+
+    // Day, week and month windows over the history, with some before and after it
+    private static List<Pair<LocalDate, LocalDate>> createWindows(Random random) {
+        List<Pair<LocalDate, LocalDate>> windows = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            LocalDate end = FIRST_DAY.plusDays(random.nextInt(DAY_COUNT + 60) - 30);
+            windows.add(Pair.of(end.minusDays(1), end));
+            windows.add(Pair.of(end.minusWeeks(1), end));
+            windows.add(Pair.of(end.minusMonths(1), end));
+        }
+        return windows;
+    }
+
+    // Copy of the window split the per-window analysis used: the position until the start day is carried in at the
+    // start price, closed positions are dropped, transactions after the start until the end day are added.
+    private static List<ITransaction> splitByWindow(List<ITransaction> transactions, LocalDate start, LocalDate end,
+                                                    PriceSeries prices) {
+        UnifiedTransaction unifiedTransaction = new UnifiedTransaction(start.atStartOfDay(), AAA);
+        List<ITransaction> transactionsInWindow = new ArrayList<>();
+        for (ITransaction t: transactions) {
+            LocalDate day = t.getDate().toLocalDate();
+            if (!day.isAfter(start)) {
+                unifiedTransaction.addTransaction(t);
+            } else if (!day.isAfter(end)) {
+                transactionsInWindow.add(t);
+            }
+        }
+
+        List<ITransaction> result = new ArrayList<>();
+        if (!BigDecimalUtil.isZero(unifiedTransaction.getAmount())) {
+            unifiedTransaction.setPurchasePrice(prices.get(start));
+            result.add(unifiedTransaction);
+        }
+        result.addAll(transactionsInWindow);
+        result.sort(Comparator.comparing(ITransaction::getDate));
+        return result;
+    }
+
+}
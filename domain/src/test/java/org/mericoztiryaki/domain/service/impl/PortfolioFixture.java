@@ -0,0 +1,147 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.ReportParameters;
+import org.mericoztiryaki.domain.model.ReportRequest;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.constant.TransactionType;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.Transaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.port.PriceSource;
+import org.mericoztiryaki.domain.util.ReportParametersUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Generated portfolios of BIST symbols with daily prices until today. Exchange rates are 1, so the prices of all
+// currencies are the same. Quotes and transaction helpers below are shared by the tests of the other packages too.
+public class PortfolioFixture {
+
+    // Prices cover the month windows of the pnl history
+    private static final int PRICED_DAY_COUNT = 800;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    public static PriceSource priceSource(int symbolCount) {
+        FakePriceSource source = new FakePriceSource();
+        LocalDate today = LocalDate.now();
+        for (LocalDate day = today.minusDays(PRICED_DAY_COUNT); !day.isAfter(today); day = day.plusDays(1)) {
+            for (Currency currency: Currency.values()) {
+                source.put(new Instrument(InstrumentType.CURRENCY, currency.name()), day, quotes(BigDecimal.ONE));
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                BigDecimal price = BigDecimal.valueOf(1000 + symbol * 37 + day.toEpochDay() % 89 * 3, 2);
+                source.put(new Instrument(InstrumentType.BIST, "SYM" + symbol), day, quotes(price));
+            }
+        }
+        return source;
+    }
+
+    // Transactions of the last dayCount days in date order, sells never exceed the held amount
+    public static List<TransactionDefinition> definitions(int transactionCount, int symbolCount, int dayCount, long seed) {
+        Random random = new Random(seed);
+        LocalDateTime start = LocalDate.now().minusDays(dayCount).atTime(10, 0);
+        int[] held = new int[symbolCount];
+
+        List<TransactionDefinition> definitions = new ArrayList<>(transactionCount);
+        for (int i = 0; i < transactionCount; i++) {
+            int symbol = random.nextInt(symbolCount);
+            boolean buy = held[symbol] == 0 || random.nextInt(3) > 0;
+            int amount = buy ? 1 + random.nextInt(100) : 1 + random.nextInt(held[symbol]);
+            held[symbol] += buy ? amount : -amount;
+
+            LocalDateTime date = start.plusMinutes((long) i * dayCount * 24 * 60 / transactionCount);
+            definitions.add(new TransactionDefinition(i, date.format(FORMATTER), "BIST", "SYM" + symbol,
+                    buy ? "BUY" : "SELL", String.valueOf(amount), String.valueOf(5 + random.nextInt(50)), "1", "TRY"));
+        }
+        return definitions;
+    }
+
+    // Default report parameters of the definitions
+    public static ReportParameters parameters(List<TransactionDefinition> definitions, String outputFileLocation) {
+        ReportRequest request = ReportRequest.getDefaultReportRequest();
+        request.setTransactions(definitions::stream);
+        request.setOutputFileLocation(outputFileLocation);
+        return ReportParametersUtil.validateReportRequest(request);
+    }
+
+    // Buys and sells of an instrument in date order over dayCount days, a few of them on the same day. Sells don't exceed
+    // the held amount.
+    public static List<ITransaction> transactions(Random random, Instrument instrument, LocalDate firstDay, int dayCount) {
+        List<ITransaction> transactions = new ArrayList<>();
+        BigDecimal amount = BigDecimal.ZERO;
+        LocalDate day = firstDay;
+        while (day.isBefore(firstDay.plusDays(dayCount))) {
+            boolean sell = amount.signum() > 0 && random.nextInt(3) == 0;
+            BigDecimal transactionAmount = BigDecimal.valueOf(1 + random.nextInt(400), 1);
+            if (sell) {
+                transactionAmount = transactionAmount.min(amount);
+                amount = amount.subtract(transactionAmount);
+            } else {
+                amount = amount.add(transactionAmount);
+            }
+
+            transactions.add(new Transaction(day.atTime(10, 0).plusMinutes(transactions.size()), instrument,
+                    sell ? TransactionType.SELL : TransactionType.BUY, transactionAmount, quotes(random), quotes(random),
+                    Currency.TRY));
+            day = day.plusDays(random.nextInt(4) == 0 ? 0 : random.nextInt(9));
+        }
+        return transactions;
+    }
+
+    // Same value in every currency
+    public static Quotes quotes(String value) {
+        return quotes(new BigDecimal(value));
+    }
+
+    public static Quotes quotes(String tryValue, String usdValue) {
+        Quotes quotes = new Quotes();
+        quotes.set(Currency.TRY, new BigDecimal(tryValue));
+        quotes.set(Currency.USD, new BigDecimal(usdValue));
+        return quotes;
+    }
+
+    // Random values between 1 and 1000 in every currency
+    public static Quotes quotes(Random random) {
+        Quotes quotes = new Quotes();
+        for (Currency currency: Currency.values()) {
+            quotes.set(currency, BigDecimal.valueOf(100 + random.nextInt(100_000), 2));
+        }
+        return quotes;
+    }
+
+    // Values are compared ignoring their scales
+    public static void assertSameValues(Quotes expected, Quotes actual) {
+        assertSameValues(expected, actual, "");
+    }
+
+    // Context, e.g. the window of the values, prefixes the failure message
+    public static void assertSameValues(Quotes expected, Quotes actual, Object context) {
+        assertSameValues(expected, actual, context + " ");
+    }
+
+    private static void assertSameValues(Quotes expected, Quotes actual, String messagePrefix) {
+        for (Currency currency: Currency.values()) {
+            assertEquals(0, expected.get(currency).compareTo(actual.get(currency)),
+                    messagePrefix + currency + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    private static Quotes quotes(BigDecimal value) {
+        Quotes quotes = new Quotes();
+        for (Currency currency: Currency.values()) {
+            quotes.set(currency, value);
+        }
+        return quotes;
+    }
+}
@@ -0,0 +1,132 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PriceCoverageTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate DAY = LocalDate.of(2021, 1, 4);
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void daysWithoutPriceAreNonTradingDays() {
+        PriceCoverage coverage = new PriceCoverage();
+        coverage.addRange(DAY, DAY.plusDays(9), Set.of(DAY, DAY.plusDays(1), DAY.plusDays(4), DAY.plusDays(9)), 7, TTL);
+
+        assertTrue(coverage.isNonTradingDay(DAY.plusDays(2)));
+        assertFalse(coverage.isNonTradingDay(DAY.plusDays(4)));
+        assertEquals(List.of(Pair.of(DAY.minusDays(5), DAY.minusDays(1)), Pair.of(DAY.plusDays(10), DAY.plusDays(12))),
+                coverage.getMissingRanges(DAY.minusDays(5), DAY.plusDays(12)));
+
+        // Days of a range asked again follow the last answer
+        coverage.addRange(DAY, DAY.plusDays(2), Set.of(DAY, DAY.plusDays(2)), 7, TTL);
+        assertFalse(coverage.isNonTradingDay(DAY.plusDays(2)));
+        assertTrue(coverage.isNonTradingDay(DAY.plusDays(1)));
+    }
+
+    @Test
+    public void missingRecentDaysAreAskedAgainAfterTtl() {
+        LocalDate start = TODAY.minusDays(30);
+        LocalDate yesterday = TODAY.minusDays(1);
+
+        PriceCoverage coverage = new PriceCoverage();
+        coverage.addRange(start, TODAY, Set.of(start, TODAY.minusDays(10), TODAY.minusDays(5)), 7, TTL);
+
+        // Settled days are final, recent ones are not asked again until the ttl expires
+        assertTrue(coverage.isNonTradingDay(TODAY.minusDays(9)));
+        assertTrue(coverage.isNonTradingDay(TODAY.minusDays(6)));
+        assertTrue(coverage.isNonTradingDay(yesterday));
+        assertFalse(coverage.isNonTradingDay(TODAY.minusDays(5)));
+        assertEquals(List.of(Pair.of(TODAY, TODAY)), coverage.getMissingRanges(start, TODAY));
+
+        PriceCoverage expired = new PriceCoverage();
+        expired.addRange(start, TODAY, Set.of(start, TODAY.minusDays(10), TODAY.minusDays(5)), 7, 0);
+        assertTrue(expired.isNonTradingDay(TODAY.minusDays(9)));
+        assertFalse(expired.isNonTradingDay(TODAY.minusDays(6)));
+        assertFalse(expired.isNonTradingDay(yesterday));
+        assertEquals(List.of(Pair.of(TODAY.minusDays(7), TODAY.minusDays(6)), Pair.of(TODAY.minusDays(4), TODAY)),
+                expired.getMissingRanges(start, TODAY));
+
+        // Published later, the day is covered
+        expired.addRange(TODAY.minusDays(7), yesterday, Set.of(TODAY.minusDays(5), yesterday), 7, 0);
+        assertFalse(expired.isNonTradingDay(yesterday));
+        assertEquals(List.of(Pair.of(TODAY.minusDays(7), TODAY.minusDays(6)), Pair.of(TODAY.minusDays(4), TODAY.minusDays(2)),
+                Pair.of(TODAY, TODAY)), expired.getMissingRanges(start, TODAY));
+    }
+
+    @Test
+    public void daysAfterLastPriceOfRangeAreAskedAgainAfterTtl() {
+        PriceCoverage coverage = new PriceCoverage();
+        coverage.addRange(DAY, DAY.plusDays(9), Set.of(DAY, DAY.plusDays(4)), 7, TTL);
+        assertTrue(coverage.isNonTradingDay(DAY.plusDays(2)));
+        assertTrue(coverage.isNonTradingDay(DAY.plusDays(7)));
+        assertTrue(coverage.getMissingRanges(DAY, DAY.plusDays(9)).isEmpty());
+
+        PriceCoverage expired = new PriceCoverage();
+        expired.addRange(DAY, DAY.plusDays(9), Set.of(DAY, DAY.plusDays(4)), 7, 0);
+        assertTrue(expired.isNonTradingDay(DAY.plusDays(2)));
+        assertFalse(expired.isNonTradingDay(DAY.plusDays(7)));
+        assertEquals(List.of(Pair.of(DAY.plusDays(5), DAY.plusDays(9))), expired.getMissingRanges(DAY, DAY.plusDays(9)));
+
+        // Prices outside the range don't settle it
+        expired.addRange(DAY.plusDays(20), DAY.plusDays(29), Set.of(DAY.plusDays(19), DAY.plusDays(30)), 7, 0);
+        assertFalse(expired.isNonTradingDay(DAY.plusDays(25)));
+        assertEquals(List.of(Pair.of(DAY.plusDays(20), DAY.plusDays(29))),
+                expired.getMissingRanges(DAY.plusDays(20), DAY.plusDays(29)));
+    }
+
+    @Test
+    public void emptyRangeExpires() {
+        PriceCoverage coverage = new PriceCoverage();
+        coverage.addRange(DAY, DAY.plusDays(9), Collections.emptySet(), 7, TTL);
+        assertTrue(coverage.isNonTradingDay(DAY.plusDays(3)));
+        assertTrue(coverage.getMissingRanges(DAY, DAY.plusDays(9)).isEmpty());
+
+        PriceCoverage expired = new PriceCoverage();
+        expired.addRange(DAY, DAY.plusDays(9), Collections.emptySet(), 7, 0);
+        assertFalse(expired.isNonTradingDay(DAY.plusDays(3)));
+        assertEquals(List.of(Pair.of(DAY, DAY.plusDays(9))), expired.getMissingRanges(DAY, DAY.plusDays(9)));
+    }
+
+    @Test
+    public void coverageIsReadAsWritten() throws IOException {
+        LocalDate start = TODAY.minusDays(30);
+        PriceCoverage coverage = new PriceCoverage();
+        coverage.addRange(DAY, DAY.plusDays(9), Set.of(DAY, DAY.plusDays(4)), 7, TTL);
+        coverage.addRange(DAY.plusDays(20), DAY.plusDays(29), Collections.emptySet(), 7, TTL);
+        coverage.addRange(start, TODAY, Set.of(start, TODAY.minusDays(5)), 7, TTL);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            coverage.write(out);
+        }
+        PriceCoverage read;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = PriceCoverage.read(in);
+        }
+
+        for (LocalDate day = DAY.minusDays(1); day.isBefore(DAY.plusDays(31)); day = day.plusDays(1)) {
+            assertEquals(coverage.isNonTradingDay(day), read.isNonTradingDay(day), day.toString());
+        }
+        for (LocalDate day = start.minusDays(1); !day.isAfter(TODAY); day = day.plusDays(1)) {
+            assertEquals(coverage.isNonTradingDay(day), read.isNonTradingDay(day), day.toString());
+        }
+        assertEquals(coverage.getMissingRanges(DAY.minusDays(5), TODAY), read.getMissingRanges(DAY.minusDays(5), TODAY));
+    }
+}
@@ -0,0 +1,62 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mericoztiryaki.domain.service.impl.PortfolioFixture.quotes;
+
+public class PriceSeriesTest {
+
+    private static final Instrument AAA = new Instrument(InstrumentType.BIST, "AAA");
+    private static final LocalDate DAY = LocalDate.of(2021, 1, 4);
+
+    @Test
+    public void loadedDatesAreReadFromSeries() {
+        FakePriceService priceService = new FakePriceService();
+        Quotes first = quotes("1");
+        Quotes last = quotes("2");
+        priceService.put(AAA, DAY, first);
+        priceService.put(AAA, DAY.plusDays(30), last);
+
+        // Day 10 has no price
+        PriceSeries series = priceService.getPriceSeries(AAA, Set.of(DAY, DAY.plusDays(10), DAY.plusDays(30)));
+        assertEquals(3, priceService.getCalls().size());
+
+        assertSame(first, series.get(DAY));
+        assertSame(last, series.get(DAY.plusDays(30)));
+        assertNull(series.get(DAY.plusDays(10)));
+        assertEquals(3, priceService.getCalls().size());
+        assertEquals(AAA, series.getInstrument());
+    }
+
+    @Test
+    public void otherDatesAreReadThroughPriceService() {
+        FakePriceService priceService = new FakePriceService();
+        priceService.put(AAA, DAY.minusDays(1), quotes("3"));
+        priceService.put(AAA, DAY.plusDays(5), quotes("4"));
+        priceService.put(AAA, DAY.plusDays(9), quotes("5"));
+
+        PriceSeries series = priceService.getPriceSeries(AAA, Set.of(DAY, DAY.plusDays(10)));
+        assertEquals(quotes("3"), series.get(DAY.minusDays(1)));
+        assertEquals(quotes("4"), series.get(DAY.plusDays(5)));
+        assertNull(series.get(DAY.plusDays(11)));
+
+        // Dates of the series are asked once while it is created, the others on every lookup
+        List<String> calls = priceService.getCalls();
+        assertEquals(Set.of("AAA " + DAY, "AAA " + DAY.plusDays(10)), Set.copyOf(calls.subList(0, 2)));
+        assertEquals(List.of("AAA " + DAY.minusDays(1), "AAA " + DAY.plusDays(5), "AAA " + DAY.plusDays(11)),
+                calls.subList(2, calls.size()));
+
+        PriceSeries empty = priceService.getPriceSeries(AAA, Set.of());
+        assertEquals(quotes("5"), empty.get(DAY.plusDays(9)));
+    }
+}
@@ -0,0 +1,174 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mericoztiryaki.domain.service.impl.PortfolioFixture.quotes;
+
+public class PriceServiceTest {
+
+    private static final Instrument AAA = new Instrument(InstrumentType.BIST, "AAA");
+    private static final Instrument USD = new Instrument(InstrumentType.CURRENCY, "USD");
+    private static final LocalDate DAY = LocalDate.of(2021, 1, 4);
+
+    private Path directory;
+    private String cachePath;
+    private FakePriceSource source;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("price-service");
+        cachePath = directory.resolve("prices.bin").toString();
+        source = new FakePriceSource();
+        for (int i = 0; i < 10; i++) {
+            source.put(AAA, DAY.plusDays(i), quotes(String.valueOf(i + 1)));
+        }
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void versionChangesOnlyWhenPricesAreAdded() throws InterruptedException {
+        PriceService service = new PriceService(source, cachePath);
+        long emptyVersion = service.getPriceVersion(Set.of(AAA));
+        assertNotEquals(0, emptyVersion);
+
+        assertEquals(quotes("1"), service.getPrice(AAA, DAY));
+        long version = service.getPriceVersion(Set.of(AAA));
+        assertNotEquals(emptyVersion, version);
+
+        // Served from the cache, nothing is added
+        assertEquals(quotes("2"), service.getPrice(AAA, DAY.plusDays(1)));
+        assertEquals(version, service.getPriceVersion(Set.of(AAA)));
+
+        // Flushing the queued prices keeps the version
+        Thread.sleep(500);
+        assertEquals(version, service.getPriceVersion(Set.of(AAA)));
+        assertEquals(version, new PriceService(source, cachePath).getPriceVersion(Set.of(AAA)));
+    }
+
+    @Test
+    public void versionDoesNotChangeWithPricesOfOtherInstruments() throws InterruptedException {
+        source.put(USD, DAY, quotes("7"));
+        PriceService service = new PriceService(source, cachePath);
+        assertEquals(quotes("1"), service.getPrice(AAA, DAY));
+        long version = service.getPriceVersion(Set.of(AAA));
+        long exchangeRateVersion = service.getPriceVersion(Set.of(USD));
+
+        assertEquals(quotes("7"), service.getPrice(USD, DAY));
+        assertEquals(version, service.getPriceVersion(Set.of(AAA)));
+        assertNotEquals(exchangeRateVersion, service.getPriceVersion(Set.of(USD)));
+        assertNotEquals(service.getPriceVersion(Set.of()), service.getPriceVersion(Set.of(AAA, USD)));
+
+        // Stored counts of the instruments are read after the store is opened again
+        Thread.sleep(500);
+        PriceService reopened = new PriceService(source, cachePath);
+        assertEquals(version, reopened.getPriceVersion(Set.of(AAA)));
+        assertEquals(service.getPriceVersion(Set.of(USD)), reopened.getPriceVersion(Set.of(USD)));
+    }
+
+    @Test
+    public void prefetchAsksMergedWindowsOnce() {
+        PriceService service = new PriceService(source, cachePath);
+        Map<Instrument, Set<LocalDate>> requiredDates = new HashMap<>();
+        requiredDates.put(AAA, Set.of(DAY, DAY.plusDays(5), DAY.plusDays(200)));
+        requiredDates.put(USD, Set.of(DAY));
+
+        service.prefetchPrices(requiredDates);
+        assertEquals(Set.of("BIST AAA 2020-11-05 2021-03-10", "BIST AAA 2021-05-24 2021-09-21",
+                "CURRENCY USD 2020-11-05 2021-03-05"), new HashSet<>(source.getCalls()));
+
+        // Prefetched prices and the days without a price are answered without asking again
+        assertEquals(quotes("6"), service.getPrice(AAA, DAY.plusDays(5)));
+        assertNull(service.getPrice(AAA, DAY.plusDays(30)));
+        service.prefetchPrices(requiredDates);
+        assertEquals(3, source.getCalls().size());
+    }
+
+    @Test
+    public void queuedPricesAreSavedToStore() throws IOException, InterruptedException {
+        PriceService service = new PriceService(source, cachePath);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(quotes(String.valueOf(i + 1)), service.getPrice(AAA, DAY.plusDays(i)));
+        }
+
+        assertTrue(waitForStoredCount(10));
+        PriceStore store = new PriceStore(cachePath);
+        store.open();
+        assertEquals(quotes("10"), store.get(AAA, DAY.plusDays(9)));
+        store.close();
+
+        // Served from the store without asking the source
+        int callCount = source.getCalls().size();
+        assertEquals(quotes("4"), new PriceService(new FakePriceSource(), cachePath).getPrice(AAA, DAY.plusDays(3)));
+        assertEquals(callCount, source.getCalls().size());
+    }
+
+    @Test
+    public void pricesOfFailedFlushAreRetried() throws IOException, InterruptedException {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        PriceStore failingStore = new PriceStore(cachePath) {
+            @Override
+            public synchronized int append(Map<Instrument, Map<LocalDate, Quotes>> prices) throws IOException {
+                if (failing.get()) {
+                    throw new IOException("No space left on device");
+                }
+                return super.append(prices);
+            }
+        };
+
+        PriceService service = new PriceService(source, failingStore);
+        assertEquals(quotes("1"), service.getPrice(AAA, DAY));
+        long version = service.getPriceVersion(Set.of(AAA));
+
+        Thread.sleep(200);
+        assertEquals(0, failingStore.getPriceCount());
+        assertEquals(version, service.getPriceVersion(Set.of(AAA)));
+
+        // Queued prices are still served and saved once the store recovers
+        assertEquals(quotes("5"), service.getPrice(AAA, DAY.plusDays(4)));
+        failing.set(false);
+        assertTrue(waitForStoredCount(10));
+        assertEquals(version, service.getPriceVersion(Set.of(AAA)));
+    }
+
+    private boolean waitForStoredCount(long count) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            PriceStore store = new PriceStore(cachePath);
+            store.open();
+            long storedCount = store.getPriceCount();
+            store.close();
+            if (storedCount == count) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+}
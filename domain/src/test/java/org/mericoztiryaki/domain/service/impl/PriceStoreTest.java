@@ -0,0 +1,230 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mericoztiryaki.domain.service.impl.PortfolioFixture.quotes;
+
+public class PriceStoreTest {
+
+    private static final Instrument AAA = new Instrument(InstrumentType.BIST, "AAA");
+    private static final Instrument USD = new Instrument(InstrumentType.CURRENCY, "USD");
+    private static final LocalDate DAY = LocalDate.of(2021, 1, 4);
+
+    private Path directory;
+    private Path storePath;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("price-store");
+        storePath = directory.resolve("prices.bin");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void appendedPricesAreReadAfterReopen() throws IOException {
+        PriceStore store = open();
+        long storeId = store.getStoreId();
+        assertEquals(2, store.append(prices(AAA, DAY, quotes("10.5", "1.42"), DAY.plusDays(1), quotes("10.75", "1.45"))));
+        assertEquals(quotes("10.5", "1.42"), store.get(AAA, DAY));
+        store.close();
+
+        store = open();
+        assertEquals(storeId, store.getStoreId());
+        assertEquals(quotes("10.5", "1.42"), store.get(AAA, DAY));
+        assertEquals(quotes("10.75", "1.45"), store.get(AAA, DAY.plusDays(1)));
+        assertFalse(store.contains(AAA, DAY.plusDays(2)));
+        assertNull(store.get(USD, DAY));
+        assertEquals(2, store.getPriceCount(AAA));
+        assertEquals(0, store.getPriceCount(USD));
+
+        // Stored prices are not appended again
+        assertEquals(1, store.append(prices(AAA, DAY, quotes("99", "99"), DAY.minusDays(30), quotes("9", "1.3"))));
+        assertEquals(quotes("10.5", "1.42"), store.get(AAA, DAY));
+        assertEquals(quotes("9", "1.3"), store.get(AAA, DAY.minusDays(30)));
+        assertEquals(3, store.getPriceCount(AAA));
+        store.close();
+    }
+
+    @Test
+    public void storeLargerThanScanWindowIsIndexed() throws IOException {
+        PriceStore store = open();
+        Map<LocalDate, Quotes> days = new HashMap<>();
+        int dayCount = PriceStore.SCAN_WINDOW_SIZE / 30;
+        for (int i = 0; i < dayCount; i++) {
+            days.put(DAY.plusDays(i), quotes(String.valueOf(i), "1"));
+        }
+        Map<Instrument, Map<LocalDate, Quotes>> prices = new HashMap<>();
+        prices.put(AAA, days);
+        prices.put(USD, Map.of(DAY, quotes("7.4", "1")));
+        store.append(prices);
+        store.close();
+
+        store = open();
+        for (int i = 0; i < dayCount; i++) {
+            assertEquals(quotes(String.valueOf(i), "1"), store.get(AAA, DAY.plusDays(i)));
+        }
+        assertEquals(quotes("7.4", "1"), store.get(USD, DAY));
+        store.close();
+    }
+
+    @Test
+    public void partiallyWrittenRecordIsDropped() throws IOException {
+        PriceStore store = open();
+        store.append(prices(AAA, DAY, quotes("10.5", "1.42")));
+        store.append(prices(AAA, DAY.plusDays(1), quotes("10.75", "1.45")));
+        store.close();
+
+        long size = Files.size(storePath);
+        try (FileChannel channel = FileChannel.open(storePath, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+
+        store = open();
+        assertEquals(quotes("10.5", "1.42"), store.get(AAA, DAY));
+        assertFalse(store.contains(AAA, DAY.plusDays(1)));
+
+        assertEquals(1, store.append(prices(AAA, DAY.plusDays(1), quotes("10.75", "1.45"))));
+        store.close();
+
+        store = open();
+        assertEquals(quotes("10.75", "1.45"), store.get(AAA, DAY.plusDays(1)));
+        store.close();
+    }
+
+    @Test
+    public void unknownFileIsMovedAside() throws IOException {
+        byte[] content = "not a price store".getBytes();
+        Files.write(storePath, content);
+
+        PriceStore store = open();
+        assertNotEquals(0, store.getStoreId());
+        assertNull(store.get(AAA, DAY));
+        store.close();
+
+        assertArrayEquals(content, Files.readAllBytes(directory.resolve("prices.bin.unknown")));
+    }
+
+    @Test
+    public void legacyCacheIsImported() throws IOException {
+        byte[] content;
+        try (InputStream in = getClass().getResourceAsStream("/legacy-price-cache.bin")) {
+            content = in.readAllBytes();
+        }
+        Files.write(storePath, content);
+
+        PriceStore store = open();
+        assertEquals(quotes("10.50", "1.42"), store.get(AAA, DAY));
+        assertEquals(quotes("10.75", "1.45"), store.get(AAA, DAY.plusDays(1)));
+
+        Quotes usd = quotes("7.4012", "1");
+        usd.set(Currency.EUR, new BigDecimal("0.8155"));
+        assertEquals(usd, store.get(USD, DAY));
+        store.close();
+
+        assertArrayEquals(content, Files.readAllBytes(directory.resolve("prices.bin.legacy")));
+
+        // Imported once, the store is opened as is afterwards
+        store = open();
+        assertEquals(quotes("10.50", "1.42"), store.get(AAA, DAY));
+        store.close();
+        assertTrue(Files.exists(directory.resolve("prices.bin.legacy")));
+        assertFalse(Files.exists(directory.resolve("prices.bin.legacy.1")));
+    }
+
+    @Test
+    public void pricesAreReadWhileTheyAreAppended() throws Exception {
+        PriceStore store = open();
+        int dayCount = 2000;
+        AtomicBoolean appending = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // Days are appended around the first one in both directions, so the day index grows at both ends
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    Random random = new Random();
+                    while (appending.get()) {
+                        int day = random.nextInt(2 * dayCount) - dayCount;
+                        Quotes quotes = store.get(AAA, DAY.plusDays(day));
+                        if (store.contains(AAA, DAY.plusDays(day))) {
+                            assertEquals(quotes(String.valueOf(day), "1"), store.get(AAA, DAY.plusDays(day)));
+                        }
+                        if (quotes != null) {
+                            assertEquals(quotes(String.valueOf(day), "1"), quotes);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int i = 0; i < dayCount; i++) {
+            int day = i % 2 == 0 ? i : -i;
+            store.append(prices(AAA, DAY.plusDays(day), quotes(String.valueOf(day), "1")));
+        }
+        appending.set(false);
+        for (Thread reader: readers) {
+            reader.join();
+        }
+        store.close();
+
+        assertNull(failure.get());
+        assertEquals(dayCount, store.getPriceCount(AAA));
+    }
+
+    private PriceStore open() throws IOException {
+        PriceStore store = new PriceStore(storePath.toString());
+        store.open();
+        return store;
+    }
+
+    private static Map<Instrument, Map<LocalDate, Quotes>> prices(Instrument instrument, Object... dayQuotes) {
+        Map<LocalDate, Quotes> days = new HashMap<>();
+        for (int i = 0; i < dayQuotes.length; i += 2) {
+            days.put((LocalDate) dayQuotes[i], (Quotes) dayQuotes[i + 1]);
+        }
+        Map<Instrument, Map<LocalDate, Quotes>> prices = new HashMap<>();
+        prices.put(instrument, days);
+        return prices;
+    }
+}
@@ -0,0 +1,162 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.exception.ReportParametersException;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.PreparedReport;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.ReportParameters;
+import org.mericoztiryaki.domain.model.ReportRequest;
+import org.mericoztiryaki.domain.model.constant.Period;
+import org.mericoztiryaki.domain.model.result.AggregatedAnalyzeResult;
+import org.mericoztiryaki.domain.model.result.HistoricalAnalyzeResult;
+import org.mericoztiryaki.domain.model.result.InstrumentAnalyzeResult;
+import org.mericoztiryaki.domain.model.result.Report;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.util.Environment;
+import org.mericoztiryaki.domain.util.QuotesUtil;
+import org.mericoztiryaki.domain.util.ReportParametersUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mericoztiryaki.domain.service.impl.PortfolioFixture.assertSameValues;
+
+public class ReportServiceTest {
+
+    private static final int SYMBOL_COUNT = 12;
+    private static final int DAY_COUNT = 200;
+
+    private Path directory;
+    private PriceService priceService;
+    private ReportService reportService;
+
+    @BeforeEach
+    public void createReportService() throws IOException {
+        directory = Files.createTempDirectory("report-service");
+        priceService = new PriceService(PortfolioFixture.priceSource(SYMBOL_COUNT),
+                directory.resolve("prices.bin").toString());
+        reportService = new ReportService(priceService, new TransactionService(priceService));
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void parallelResultsAreSameAsSequentialAnalysis() {
+        assertTrue(Environment.REPORT_PARALLELISM > 1);
+
+        List<TransactionDefinition> definitions = PortfolioFixture.definitions(2_000, SYMBOL_COUNT, DAY_COUNT, 11);
+        Report report = reportService.generateReport(parameters(definitions));
+
+        // Open positions are listed in instrument order
+        List<Instrument> openInstruments = report.getOpenPositions().stream()
+                .map(InstrumentAnalyzeResult::getInstrument)
+                .collect(Collectors.toList());
+        assertEquals(openInstruments.stream()
+                .sorted(Comparator.comparing(Instrument::getInstrumentType).thenComparing(Instrument::getSymbol))
+                .collect(Collectors.toList()), openInstruments);
+
+        // Every symbol is the same as an analyzer over its own transactions, the total is their sum
+        Map<Instrument, List<ITransaction>> transactionsByInstrument = report.getTransactions().stream()
+                .collect(Collectors.groupingBy(ITransaction::getInstrument));
+        AggregatedAnalyzeResult root = report.getAggregatedResult();
+        Quotes sum = Quotes.zero();
+        for (Map.Entry<Instrument, List<ITransaction>> entry: transactionsByInstrument.entrySet()) {
+            Instrument instrument = entry.getKey();
+            Analyzer analyzer = new Analyzer(entry.getValue(), Analyzer.sharedPrice(
+                    priceService.getPriceSeries(instrument, Set.of(LocalDate.now())), LocalDate.now()));
+
+            Quotes pnl = root.getChildren().get(String.valueOf(instrument.getInstrumentType()))
+                    .getChildren().get(instrument.getSymbol())
+                    .getPnlCalculation().get(Period.ALL).get();
+            assertSameValues(analyzer.calculatePNL(), pnl);
+            QuotesUtil.addTo(sum, pnl);
+        }
+        assertEquals(SYMBOL_COUNT, transactionsByInstrument.size());
+        assertSameValues(sum, root.getPnlCalculation().get(Period.ALL).get());
+
+        // Results don't depend on the order the tasks finish
+        Report repeated = reportService.generateReport(parameters(definitions));
+        assertEquals(report.getAggregatedResult(), repeated.getAggregatedResult());
+        assertEquals(report.getOpenPositions(), repeated.getOpenPositions());
+        report.getHistoricalAnalyzeResult().forEach((unit, windows) -> {
+            List<HistoricalAnalyzeResult> repeatedWindows = repeated.getHistoricalAnalyzeResult().get(unit);
+            assertEquals(windows.size(), repeatedWindows.size());
+            for (int i = 0; i < windows.size(); i++) {
+                assertEquals(windows.get(i).getStart(), repeatedWindows.get(i).getStart());
+                assertEquals(windows.get(i).getPnl(), repeatedWindows.get(i).getPnl());
+                assertEquals(windows.get(i).getTotalValue(), repeatedWindows.get(i).getTotalValue());
+            }
+        });
+    }
+
+    @Test
+    public void definitionsAreConvertedInBatchesWhileTheyAreRead() {
+        List<TransactionDefinition> definitions = PortfolioFixture.definitions(25_000, SYMBOL_COUNT, DAY_COUNT, 5);
+        AtomicInteger readCount = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        List<Integer> batchSizes = new ArrayList<>();
+
+        // Definitions read ahead of the conversion never exceed a batch
+        TransactionService transactionService = new TransactionService(priceService) {
+            private int convertedCount;
+
+            @Override
+            public List<ITransaction> buildTransactionObjects(List<TransactionDefinition> batch) {
+                batchSizes.add(batch.size());
+                convertedCount += batch.size();
+                assertEquals(convertedCount, readCount.get());
+                return super.buildTransactionObjects(batch);
+            }
+        };
+        ReportService service = new ReportService(priceService, transactionService);
+        ReportRequest request = ReportRequest.getDefaultReportRequest();
+        request.setTransactions(() -> definitions.stream()
+                .peek(d -> readCount.incrementAndGet())
+                .onClose(() -> closed.set(true)));
+
+        PreparedReport preparedReport = service.prepareReport(ReportParametersUtil.validateReportRequest(request));
+
+        assertEquals(List.of(10_000, 10_000, 5_000), batchSizes);
+        assertEquals(definitions.size(), preparedReport.getTransactions().size());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void emptySourceIsRejected() {
+        ReportRequest request = ReportRequest.getDefaultReportRequest();
+        request.setTransactions(Stream::empty);
+
+        ReportParametersException e = assertThrows(ReportParametersException.class,
+                () -> reportService.generateReport(ReportParametersUtil.validateReportRequest(request)));
+        assertEquals("Transactions must not be empty", e.getMessage());
+    }
+
+    private static ReportParameters parameters(List<TransactionDefinition> definitions) {
+        ReportRequest request = ReportRequest.getDefaultReportRequest();
+        request.setTransactions(definitions::stream);
+        return ReportParametersUtil.validateReportRequest(request);
+    }
+}
@@ -0,0 +1,168 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.constant.TransactionType;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.Transaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionTimeline;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportStateStoreTest {
+
+    private static final String IDENTITY = "/portfolio.csv";
+    private static final long PRICE_VERSION = 42;
+    private static final Instrument AAA = new Instrument(InstrumentType.BIST, "AAA");
+    private static final Instrument BBB = new Instrument(InstrumentType.BIST, "BBB");
+
+    private static final Pair<LocalDate, LocalDate> JANUARY = Pair.of(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 31));
+    private static final Pair<LocalDate, LocalDate> FEBRUARY = Pair.of(LocalDate.of(2021, 2, 1), LocalDate.of(2021, 2, 28));
+
+    private Path directory;
+    private ReportStateStore store;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("report-state");
+        store = new ReportStateStore(directory.toString());
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void savedStatesAreLoadedWithoutWindowsEndingToday() {
+        ReportStateStore.InstrumentState state = stateWithWindows(transactions(2));
+        Pair<LocalDate, LocalDate> current = Pair.of(LocalDate.now().minusDays(7), LocalDate.now());
+        state.getWindowResults().put(current, result("3"));
+
+        store.save(IDENTITY, Map.of(AAA, state));
+        ReportStateStore.InstrumentState loaded = store.load(IDENTITY, instrument -> PRICE_VERSION).get(AAA);
+
+        assertEquals(PRICE_VERSION, loaded.getPriceVersion());
+        assertEquals(state.getTransactionCount(), loaded.getTransactionCount());
+        assertArrayEquals(state.getDigest(), loaded.getDigest());
+        assertEquals(2, loaded.getWindowResults().size());
+        assertResult(result("1"), loaded.getWindowResults().get(JANUARY));
+        assertResult(result("2"), loaded.getWindowResults().get(FEBRUARY));
+    }
+
+    @Test
+    public void stateOfAnotherPriceVersionIsNotLoaded() {
+        store.save(IDENTITY, Map.of(AAA, stateWithWindows(transactions(2)), BBB, stateWithWindows(transactions(2))));
+
+        // Only the instrument whose prices are added is dropped
+        Map<Instrument, ReportStateStore.InstrumentState> loaded =
+                store.load(IDENTITY, instrument -> instrument.equals(AAA) ? PRICE_VERSION + 1 : PRICE_VERSION);
+        assertEquals(Set.of(BBB), loaded.keySet());
+        assertTrue(store.load(IDENTITY, instrument -> 0).isEmpty());
+        assertTrue(store.load("/other.csv", instrument -> PRICE_VERSION).isEmpty());
+    }
+
+    @Test
+    public void stateWithoutPriceVersionIsNotSaved() {
+        ReportStateStore.InstrumentState state = store.continueState(new TransactionTimeline(transactions(2)), null);
+        store.save(IDENTITY, Map.of(AAA, state));
+
+        assertTrue(store.load(IDENTITY, instrument -> 0).isEmpty());
+        assertTrue(store.load(IDENTITY, instrument -> PRICE_VERSION).isEmpty());
+    }
+
+    @Test
+    public void corruptStateIsNotLoaded() throws IOException {
+        store.save(IDENTITY, Map.of(AAA, stateWithWindows(transactions(2))));
+        try (Stream<Path> paths = Files.list(directory)) {
+            Path path = paths.findFirst().get();
+            byte[] content = Files.readAllBytes(path);
+            Files.write(path, Arrays.copyOf(content, content.length / 2));
+        }
+
+        assertTrue(store.load(IDENTITY, instrument -> PRICE_VERSION).isEmpty());
+    }
+
+    @Test
+    public void windowsBeforeAppendedTransactionsAreCarriedOver() {
+        ReportStateStore.InstrumentState previous = stateWithWindows(transactions(2));
+
+        // Third transaction is in February, only January is reused
+        List<ITransaction> appended = transactions(3);
+        ReportStateStore.InstrumentState state = store.continueState(new TransactionTimeline(appended), previous);
+        assertEquals(3, state.getTransactionCount());
+        assertEquals(1, state.getWindowResults().size());
+        assertResult(result("1"), state.getWindowResults().get(JANUARY));
+
+        // Unchanged transactions reuse every window
+        state = store.continueState(new TransactionTimeline(transactions(2)), previous);
+        assertEquals(2, state.getWindowResults().size());
+    }
+
+    @Test
+    public void windowsOfChangedTransactionsAreDropped() {
+        ReportStateStore.InstrumentState previous = stateWithWindows(transactions(2));
+
+        List<ITransaction> changed = new ArrayList<>(transactions(2));
+        Transaction first = (Transaction) changed.get(0);
+        changed.set(0, new Transaction(first.getDate(), AAA, TransactionType.BUY, new BigDecimal("11"),
+                first.getPurchasePrice(), first.getCommissionPrice(), first.getCurrency()));
+        assertTrue(store.continueState(new TransactionTimeline(changed), previous).getWindowResults().isEmpty());
+
+        assertTrue(store.continueState(new TransactionTimeline(transactions(1)), previous).getWindowResults().isEmpty());
+    }
+
+    private ReportStateStore.InstrumentState stateWithWindows(List<ITransaction> transactions) {
+        ReportStateStore.InstrumentState state = store.continueState(new TransactionTimeline(transactions), null);
+        state.getWindowResults().put(JANUARY, result("1"));
+        state.getWindowResults().put(FEBRUARY, result("2"));
+        state.setPriceVersion(PRICE_VERSION);
+        return state;
+    }
+
+    // Two transactions in January, the following ones monthly from February
+    private static List<ITransaction> transactions(int count) {
+        List<ITransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDateTime date = i < 2 ? LocalDateTime.of(2021, 1, 4 + i, 10, 0) : LocalDateTime.of(2021, i, 15, 10, 0);
+            transactions.add(new Transaction(date, AAA, TransactionType.BUY, new BigDecimal("10"),
+                    PortfolioFixture.quotes(String.valueOf(i + 1)), Quotes.zero(), Currency.TRY));
+        }
+        return transactions;
+    }
+
+    private static HistoricalAnalyzer.WindowResult result(String value) {
+        return new HistoricalAnalyzer.WindowResult(PortfolioFixture.quotes(value), PortfolioFixture.quotes(value + "0"),
+                PortfolioFixture.quotes("-" + value));
+    }
+
+    private static void assertResult(HistoricalAnalyzer.WindowResult expected, HistoricalAnalyzer.WindowResult actual) {
+        assertEquals(expected.getInitialValue(), actual.getInitialValue());
+        assertEquals(expected.getTotalValue(), actual.getTotalValue());
+        assertEquals(expected.getPnl(), actual.getPnl());
+    }
+}
@@ -0,0 +1,118 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.exception.InvalidTransactionDefinitionException;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.port.PriceSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransactionServiceTest {
+
+    private static final Instrument USD = new Instrument(InstrumentType.CURRENCY, "USD");
+    private static final LocalDate DAY = LocalDate.of(2021, 1, 4);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private Path directory;
+    private FakePriceSource source;
+
+    @BeforeEach
+    public void createPriceSource() throws IOException {
+        directory = Files.createTempDirectory("transaction-service");
+        source = new FakePriceSource();
+        for (int i = 0; i < 20; i++) {
+            Quotes rate = new Quotes();
+            rate.set(Currency.TRY, BigDecimal.valueOf(700 + i, 2));
+            rate.set(Currency.USD, BigDecimal.ONE);
+            rate.set(Currency.EUR, new BigDecimal("0.82"));
+            source.put(USD, DAY.plusDays(i), rate);
+        }
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void bulkBuildIsSameAsBuildingRowsOneByOne() {
+        List<TransactionDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String date = DAY.plusDays(i % 20).atTime(10, i % 60).format(FORMATTER);
+            definitions.add(new TransactionDefinition(i, date, "BIST", "AAA", i % 3 == 0 ? "SELL" : "BUY",
+                    "1,000", String.valueOf(10 + i % 7), "0.5", "USD"));
+        }
+
+        PriceService priceService = new PriceService(source, directory.resolve("prices.bin").toString());
+        TransactionService transactionService = new TransactionService(priceService);
+        List<ITransaction> transactions = transactionService.buildTransactionObjects(definitions);
+
+        // Rates of all rows are fetched together in a single window
+        assertEquals(1, source.getCalls().size());
+        assertTrue(source.getCalls().get(0).startsWith("CURRENCY USD "));
+
+        assertEquals(definitions.size(), transactions.size());
+        for (int i = 0; i < definitions.size(); i++) {
+            assertEquals(transactionService.buildTransactionObject(definitions.get(i)), transactions.get(i));
+        }
+        assertEquals(1, source.getCalls().size());
+        // Commission 0.5 USD at the rate of the sixth day
+        assertEquals(0, new BigDecimal("3.525").compareTo(transactions.get(5).getCommissionPrice().get(Currency.TRY)));
+        assertEquals(new BigDecimal("1000"), transactions.get(5).getAmount());
+    }
+
+    @Test
+    public void invalidRowFailsWithItsIndex() {
+        List<TransactionDefinition> definitions = List.of(
+                new TransactionDefinition(0, "04/01/2021 10:00:00", "BIST", "AAA", "BUY", "1", "10", "0", "USD"),
+                new TransactionDefinition(1, "05/01/2021 10:00:00", "BIST", "AAA", "HOLD", "1", "10", "0", "USD"));
+
+        PriceService priceService = new PriceService(source, directory.resolve("prices.bin").toString());
+        InvalidTransactionDefinitionException e = assertThrows(InvalidTransactionDefinitionException.class,
+                () -> new TransactionService(priceService).buildTransactionObjects(definitions));
+        assertEquals("Your csv input has invalid row at index: 1", e.getMessage());
+    }
+
+    @Test
+    public void failingExchangeRateFailsWithIndexOfItsRow() {
+        PriceSource failingSource = (instrumentType, symbol, start, end) -> {
+            if (symbol.equals("EUR")) {
+                throw new IllegalStateException("Price api is unavailable");
+            }
+            return source.getPriceWindow(instrumentType, symbol, start, end);
+        };
+
+        List<TransactionDefinition> definitions = List.of(
+                new TransactionDefinition(0, "04/01/2021 10:00:00", "BIST", "AAA", "BUY", "1", "10", "0", "USD"),
+                new TransactionDefinition(1, "05/01/2021 10:00:00", "BIST", "AAA", "BUY", "1", "10", "0", "USD"),
+                new TransactionDefinition(2, "05/01/2021 11:00:00", "BIST", "BBB", "BUY", "1", "10", "0", "EUR"));
+
+        PriceService priceService = new PriceService(failingSource, directory.resolve("prices.bin").toString());
+        InvalidTransactionDefinitionException e = assertThrows(InvalidTransactionDefinitionException.class,
+                () -> new TransactionService(priceService).buildTransactionObjects(definitions));
+        assertEquals("Your csv input has invalid row at index: 2", e.getMessage());
+        assertEquals("Price api is unavailable", e.getCause().getMessage());
+    }
+}
@@ -0,0 +1,105 @@
+package org.mericoztiryaki.domain.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Instrument;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.constant.InstrumentType;
+import org.mericoztiryaki.domain.model.constant.TransactionType;
+import org.mericoztiryaki.domain.model.transaction.ITransaction;
+import org.mericoztiryaki.domain.model.transaction.Transaction;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TransactionSnapshotStoreTest {
+
+    private static final String FINGERPRINT = "fingerprint";
+    private static final long PRICE_VERSION = 42;
+
+    private Path directory;
+    private TransactionSnapshotStore store;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("transaction-snapshots");
+        store = new TransactionSnapshotStore(directory.toString());
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void savedTransactionsAreLoaded() {
+        List<ITransaction> transactions = transactions();
+        store.save(FINGERPRINT, PRICE_VERSION, transactions);
+
+        assertEquals(transactions, store.load(FINGERPRINT, PRICE_VERSION));
+    }
+
+    @Test
+    public void snapshotOfAnotherPriceVersionIsNotLoaded() {
+        store.save(FINGERPRINT, PRICE_VERSION, transactions());
+
+        assertNull(store.load(FINGERPRINT, PRICE_VERSION + 1));
+        assertNull(store.load("other", PRICE_VERSION));
+    }
+
+    @Test
+    public void nothingIsSavedWithoutPriceVersion() {
+        store.save(FINGERPRINT, 0, transactions());
+
+        assertNull(store.load(FINGERPRINT, 0));
+        assertEquals(0, directory.toFile().list().length);
+    }
+
+    @Test
+    public void corruptSnapshotIsNotLoaded() throws IOException {
+        store.save(FINGERPRINT, PRICE_VERSION, transactions());
+        Path path = directory.resolve(FINGERPRINT + ".bin");
+        byte[] content = Files.readAllBytes(path);
+
+        Files.write(path, Arrays.copyOf(content, content.length - 3));
+        assertNull(store.load(FINGERPRINT, PRICE_VERSION));
+
+        content[0] ^= 1;
+        Files.write(path, content);
+        assertNull(store.load(FINGERPRINT, PRICE_VERSION));
+
+        Files.write(path, new byte[0]);
+        assertNull(store.load(FINGERPRINT, PRICE_VERSION));
+    }
+
+    private static List<ITransaction> transactions() {
+        Instrument aaa = new Instrument(InstrumentType.BIST, "AAA");
+        Instrument usd = new Instrument(InstrumentType.CURRENCY, "USD");
+
+        Quotes commission = new Quotes();
+        commission.set(Currency.TRY, new BigDecimal("0.125"));
+
+        return List.of(
+                new Transaction(LocalDateTime.of(2021, 1, 4, 10, 30, 15, 500), aaa, TransactionType.BUY,
+                        new BigDecimal("10"), PortfolioFixture.quotes("12.3456789"), Quotes.zero(), Currency.TRY),
+                new Transaction(LocalDateTime.of(2021, 2, 1, 9, 0), usd, TransactionType.SELL,
+                        new BigDecimal("-0.5"), PortfolioFixture.quotes("7.4"), commission, null),
+                new Transaction(LocalDateTime.of(2021, 3, 1, 9, 0), aaa, TransactionType.SELL,
+                        new BigDecimal("123456789012345678901234567890.5"), PortfolioFixture.quotes("13"),
+                        Quotes.zero(), Currency.USD));
+    }
+}
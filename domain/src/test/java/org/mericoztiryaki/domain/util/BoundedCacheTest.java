@@ -0,0 +1,50 @@
+package org.mericoztiryaki.domain.util;
+
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.CacheStats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void leastRecentlyUsedEntryOfSegmentIsEvicted() {
+        // 2 entries per segment, multiples of 16 fall into the same segment
+        BoundedCache<Integer, String> cache = new BoundedCache<>(32);
+        cache.put(0, "a");
+        cache.put(16, "b");
+        assertEquals("a", cache.get(0));
+
+        cache.put(32, "c");
+        assertNull(cache.get(16));
+        assertEquals("a", cache.get(0));
+        assertEquals("c", cache.get(32));
+
+        // Checking a key doesn't make it recently used
+        assertTrue(cache.containsKey(0));
+        cache.get(32);
+        cache.putIfAbsent(48, "d");
+        assertFalse(cache.containsKey(0));
+
+        cache.putIfAbsent(32, "e");
+        assertEquals("c", cache.get(32));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void statsAreCounted() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(32);
+        cache.put(0, "a");
+        cache.put(16, "b");
+        cache.put(32, "c");
+        cache.get(0);
+        cache.get(32);
+        cache.recordLoad(1_000);
+        cache.recordLoad(3_000);
+
+        assertEquals(new CacheStats(2, 32, 1, 1, 2, 4_000, 1), cache.getStats());
+    }
+}
@@ -0,0 +1,95 @@
+package org.mericoztiryaki.domain.util;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void stagesAreMeasuredWhileMetricsAreBound() {
+        PipelineMetrics metrics = new PipelineMetrics("report");
+        int result = metrics.call(() -> PipelineMetrics.measure("outer", () -> {
+            PipelineMetrics.measure("inner", () -> PipelineMetrics.recordCacheHit());
+            PipelineMetrics.measure("inner", () -> PipelineMetrics.recordCacheMiss());
+            return 42;
+        }));
+        metrics.finish(false);
+
+        // Measuring without bound metrics only runs the task
+        PipelineMetrics.measure("unbound", () -> PipelineMetrics.recordCacheHit());
+
+        assertEquals(42, result);
+        assertEquals(List.of("outer", "inner"), metrics.getStages().stream()
+                .map(PipelineMetrics.Stage::getName)
+                .collect(Collectors.toList()));
+        assertEquals(1, metrics.getStages().get(0).getCount());
+        assertEquals(2, metrics.getStages().get(1).getCount());
+        assertTrue(metrics.getStages().get(0).getWallNanos() >= metrics.getStages().get(1).getWallNanos());
+        assertEquals(1, metrics.getCacheHits());
+        assertEquals(1, metrics.getCacheMisses());
+    }
+
+    @Test
+    public void propagatedTasksCountForSubmittingStage() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics("report");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            metrics.run(() -> PipelineMetrics.measure("parallel", () -> {
+                Function<Integer, Integer> task = PipelineMetrics.propagate((Integer i) -> {
+                    PipelineMetrics.recordCacheHit();
+                    return i + 1;
+                });
+                try {
+                    assertEquals(2, (int) executor.submit(() -> task.apply(1)).get());
+                    executor.submit(() -> PipelineMetrics.recordCacheHit()).get();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+
+        // Only the propagated task is bound to the metrics
+        assertEquals(1, metrics.getCacheHits());
+        assertEquals(1, metrics.getStages().size());
+    }
+
+    @Test
+    public void apiCallsAreCountedInLatencyBuckets() {
+        PipelineMetrics metrics = new PipelineMetrics("report");
+        metrics.run(() -> {
+            PipelineMetrics.recordApiCall(TimeUnit.MICROSECONDS.toNanos(500));
+            PipelineMetrics.recordApiCall(TimeUnit.MILLISECONDS.toNanos(7));
+            PipelineMetrics.recordApiCall(TimeUnit.MILLISECONDS.toNanos(10));
+            PipelineMetrics.recordApiCall(TimeUnit.SECONDS.toNanos(30));
+        });
+        metrics.finish(true);
+
+        assertEquals(4, metrics.getApiCalls());
+
+        JsonObject json = new JsonParser().parse(metrics.toJson()).getAsJsonObject();
+        assertEquals("report", json.get("report").getAsString());
+        assertTrue(json.get("failed").getAsBoolean());
+
+        JsonObject latencies = json.getAsJsonObject("priceApi").getAsJsonObject("latencyMillis");
+        assertEquals(4, json.getAsJsonObject("priceApi").get("calls").getAsLong());
+        assertEquals(1, latencies.get("<1").getAsLong());
+        assertEquals(1, latencies.get("<10").getAsLong());
+        assertEquals(1, latencies.get("<25").getAsLong());
+        assertEquals(1, latencies.get(">=10000").getAsLong());
+        assertEquals(0, latencies.get("<5").getAsLong());
+    }
+}
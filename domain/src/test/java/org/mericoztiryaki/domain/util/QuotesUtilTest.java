@@ -0,0 +1,53 @@
+package org.mericoztiryaki.domain.util;
+
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.Quotes;
+import org.mericoztiryaki.domain.model.constant.Currency;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mericoztiryaki.domain.service.impl.PortfolioFixture.quotes;
+
+public class QuotesUtilTest {
+
+    @Test
+    public void inPlaceFunctionsModifyOnlyTheTarget() {
+        Quotes target = quotes("10", "2");
+        Quotes operand = quotes("3", "1");
+
+        assertSame(target, QuotesUtil.addTo(target, operand));
+        assertEquals(quotes("13", "3"), target);
+
+        assertSame(target, QuotesUtil.subtractFrom(target, operand));
+        assertEquals(quotes("10", "2"), target);
+
+        assertSame(target, QuotesUtil.addProductTo(target, operand, new BigDecimal("2")));
+        assertEquals(quotes("16", "4"), target);
+
+        assertEquals(quotes("3", "1"), operand);
+    }
+
+    @Test
+    public void inPlaceFunctionsSkipCurrenciesMissingInTarget() {
+        Quotes target = quotes("10", "2");
+        Quotes operand = Quotes.zero();
+        operand.set(Currency.EUR, BigDecimal.ONE);
+
+        QuotesUtil.addTo(target, operand);
+        assertNull(target.get(Currency.EUR));
+    }
+
+    @Test
+    public void inPlaceFunctionsMatchAllocatingOnes() {
+        Quotes q1 = quotes("10.25", "1.5");
+        Quotes q2 = quotes("0.75", "0.25");
+        BigDecimal constant = new BigDecimal("3");
+
+        assertEquals(QuotesUtil.add(q1, q2), QuotesUtil.addTo(q1.copy(), q2));
+        assertEquals(QuotesUtil.subtract(q1, q2), QuotesUtil.subtractFrom(q1.copy(), q2));
+        assertEquals(QuotesUtil.add(q1, QuotesUtil.multiply(q2, constant)), QuotesUtil.addProductTo(q1.copy(), q2, constant));
+    }
+}
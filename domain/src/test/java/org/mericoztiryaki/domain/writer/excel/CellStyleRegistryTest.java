@@ -0,0 +1,91 @@
+package org.mericoztiryaki.domain.writer.excel;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.model.ReportParameters;
+import org.mericoztiryaki.domain.model.ReportRequest;
+import org.mericoztiryaki.domain.model.constant.Currency;
+import org.mericoztiryaki.domain.model.result.Report;
+import org.mericoztiryaki.domain.model.transaction.TransactionDefinition;
+import org.mericoztiryaki.domain.service.impl.PortfolioFixture;
+import org.mericoztiryaki.domain.service.impl.PriceService;
+import org.mericoztiryaki.domain.service.impl.ReportService;
+import org.mericoztiryaki.domain.service.impl.TransactionService;
+import org.mericoztiryaki.domain.util.ReportParametersUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class CellStyleRegistryTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("cell-style-registry");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void equalFormatsShareStyle() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            int defaultStyleCount = workbook.getNumCellStyles();
+            CellStyleRegistry styles = new CellStyleRegistry(workbook);
+
+            CellStyle usd = styles.getStyle(true, Currency.USD, false, null, null);
+            assertSame(usd, styles.getStyle(true, Currency.USD, false, null, null));
+
+            CellStyle negativeUsd = styles.getStyle(true, Currency.USD, false, null, CellStyleRegistry.ColorSign.NEGATIVE);
+            CellStyle centered = styles.getStyle(true, null, true, HorizontalAlignment.CENTER, null);
+            assertNotSame(usd, negativeUsd);
+            assertEquals(defaultStyleCount + 3, workbook.getNumCellStyles());
+
+            // Fonts and data formats are shared by the styles too
+            assertEquals(usd.getFontIndexAsInt(), centered.getFontIndexAsInt());
+            assertEquals(usd.getDataFormat(), negativeUsd.getDataFormat());
+        }
+    }
+
+    @Test
+    public void styleCountDoesNotGrowWithRows() throws IOException {
+        assertEquals(writeReport(100), writeReport(1_000));
+    }
+
+    // Writes the report of a generated portfolio and returns the style count of the saved workbook
+    private int writeReport(int transactionCount) throws IOException {
+        Path output = directory.resolve("report-" + transactionCount + ".xlsx");
+        PriceService priceService = new PriceService(PortfolioFixture.priceSource(4),
+                directory.resolve("prices-" + transactionCount + ".bin").toString());
+        List<TransactionDefinition> definitions = PortfolioFixture.definitions(transactionCount, 4, 60, 3);
+
+        ReportRequest request = ReportRequest.getDefaultReportRequest();
+        request.setTransactions(definitions::stream);
+        request.setOutputFileLocation(output.toString());
+        ReportParameters parameters = ReportParametersUtil.validateReportRequest(request);
+        Report report = new ReportService(priceService, new TransactionService(priceService)).generateReport(parameters);
+
+        new ExcelReportWriter().build(report, parameters, new XSSFWorkbook());
+        try (InputStream in = Files.newInputStream(output); XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+            return workbook.getNumCellStyles();
+        }
+    }
+}
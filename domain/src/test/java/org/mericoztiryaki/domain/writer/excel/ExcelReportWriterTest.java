@@ -0,0 +1,96 @@
+package org.mericoztiryaki.domain.writer.excel;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mericoztiryaki.domain.exception.ReportWriterException;
+import org.mericoztiryaki.domain.model.ReportParameters;
+import org.mericoztiryaki.domain.model.result.Report;
+import org.mericoztiryaki.domain.service.impl.PortfolioFixture;
+import org.mericoztiryaki.domain.service.impl.PriceService;
+import org.mericoztiryaki.domain.service.impl.ReportService;
+import org.mericoztiryaki.domain.service.impl.TransactionService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExcelReportWriterTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("excel-report-writer");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void failedWriteKeepsPreviousReport() throws IOException {
+        Path output = directory.resolve("report.xlsx");
+        Files.writeString(output, "previous report");
+
+        PriceService priceService = new PriceService(PortfolioFixture.priceSource(2),
+                directory.resolve("prices.bin").toString());
+        ReportParameters parameters = PortfolioFixture.parameters(PortfolioFixture.definitions(50, 2, 30, 1),
+                output.toString());
+        Report report = new ReportService(priceService, new TransactionService(priceService)).generateReport(parameters);
+
+        XSSFWorkbook workbook = new XSSFWorkbook() {
+            @Override
+            protected void commit() throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        assertThrows(ReportWriterException.class, () -> new ExcelReportWriter().build(report, parameters, workbook));
+
+        assertEquals("previous report", Files.readString(output));
+        try (Stream<Path> paths = Files.list(directory)) {
+            assertEquals(Set.of("report.xlsx", "prices.bin"), paths
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> !name.startsWith("prices.bin."))
+                    .collect(Collectors.toSet()));
+        }
+
+        new ExcelReportWriter().build(report, parameters, new XSSFWorkbook());
+        try (InputStream in = Files.newInputStream(output); XSSFWorkbook written = new XSSFWorkbook(in)) {
+            assertTrue(written.getNumberOfSheets() > 0);
+        }
+    }
+
+    @Test
+    public void closeFailureIsSuppressedByBuildFailure() {
+        XSSFWorkbook workbook = new XSSFWorkbook() {
+            @Override
+            public void close() throws IOException {
+                throw new IOException("close failed");
+            }
+        };
+        Report report = new Report(null, null, null, null);
+
+        RuntimeException failure = assertThrows(RuntimeException.class,
+                () -> new ExcelReportWriter().build(report, null, workbook));
+
+        assertFalse(failure instanceof ReportWriterException);
+        assertEquals(1, failure.getSuppressed().length);
+        assertTrue(failure.getSuppressed()[0] instanceof ReportWriterException);
+        assertEquals("close failed", failure.getSuppressed()[0].getCause().getMessage());
+    }
+}